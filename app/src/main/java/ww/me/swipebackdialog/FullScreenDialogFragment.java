@@ -1,5 +1,6 @@
 package ww.me.swipebackdialog;
 
+import android.app.Activity;
 import android.app.Dialog;
 import android.app.DialogFragment;
 import android.content.Context;
@@ -7,22 +8,36 @@ import android.os.Bundle;
 import android.support.annotation.NonNull;
 
 import ww.me.swipe_back_lib.SwipeBaseDialog;
+import ww.me.swipe_back_lib.SwipeDialogPool;
 
 
 public class FullScreenDialogFragment extends DialogFragment {
 
+    static final SwipeDialogPool.DialogFactory<MyDialog> FACTORY = new SwipeDialogPool.DialogFactory<MyDialog>() {
+        @Override
+        public MyDialog create(Activity activity) {
+            return new MyDialog(activity);
+        }
+    };
+
     @NonNull
     @Override
     public Dialog onCreateDialog(Bundle savedInstanceState) {
-        return new MyDialog(getActivity());
+        final Activity activity = getActivity();
+        if (activity instanceof SwipeDialogPool.Provider) {
+            // 复用关闭过的对话框，或者使用提前在后台inflate好的内容
+            return ((SwipeDialogPool.Provider) activity).getDialogPool().obtain(R.layout.dialog_layout, FACTORY);
+        }
+        final MyDialog dialog = FACTORY.create(activity);
+        dialog.setContentView(R.layout.dialog_layout);
+        return dialog;
     }
 
 
-    class MyDialog extends SwipeBaseDialog {
+    static class MyDialog extends SwipeBaseDialog {
 
         public MyDialog(@NonNull Context context) {
             super(context);
-            setContentView( R.layout.dialog_layout);
         }
 
     }
@@ -4,13 +4,18 @@ import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
 import android.view.View;
 
-public class MainActivity extends AppCompatActivity {
+import ww.me.swipe_back_lib.SwipeDialogPool;
 
+public class MainActivity extends AppCompatActivity implements SwipeDialogPool.Provider {
+
+    private SwipeDialogPool mDialogPool;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        mDialogPool = new SwipeDialogPool(this);
+        mDialogPool.prefetch(R.layout.dialog_layout);
 
         findViewById(R.id.button).setOnClickListener(new View.OnClickListener() {
             @Override
@@ -20,4 +25,9 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
+    @Override
+    public SwipeDialogPool getDialogPool() {
+        return mDialogPool;
+    }
+
 }
@@ -0,0 +1,57 @@
+package ww.me.swipe_back_benchmark;
+
+import java.util.Random;
+
+/**
+ * 生成合成的手势事件流。每个流固定 {@link #EVENTS} 个事件，由同一类手势重复组成，
+ * {@link #isDown} 标记每个手势的按下事件，其余是MOVE事件的X坐标。
+ */
+final class GestureStreams {
+
+    static final int EVENTS = 1024;
+
+    static final String SLOW_DRAG = "slowDrag";
+    static final String FAST_FLING = "fastFling";
+    static final String EDGE_TAP = "edgeTap";
+    static final String JITTERY_DRAG = "jitteryDrag";
+
+    final float[] x = new float[EVENTS];
+    final boolean[] isDown = new boolean[EVENTS];
+
+    private GestureStreams() {
+    }
+
+    static GestureStreams create(String type, int width, long seed) {
+        final Random random = new Random(seed);
+        final GestureStreams streams = new GestureStreams();
+        int index = 0;
+        while (index < EVENTS) {
+            if (SLOW_DRAG.equals(type)) { //120Hz输入，慢慢拖到一半
+                index = streams.ramp(index, random, 5, width / 2, 240, 0);
+            } else if (FAST_FLING.equals(type)) { //几帧内甩出去
+                index = streams.ramp(index, random, 3, width * 0.8f, 8, 0);
+            } else if (EDGE_TAP.equals(type)) { //在阈值之内抖动，不会触发滑动
+                index = streams.ramp(index, random, 4, 0, 6, 2);
+            } else if (JITTERY_DRAG.equals(type)) { //来回抖动的拖动
+                index = streams.ramp(index, random, 2, width / 3, 240, 24);
+            } else {
+                throw new IllegalArgumentException("Unknown gesture stream: " + type);
+            }
+        }
+        return streams;
+    }
+
+    /**
+     * 从index开始写入一个手势，超出流长度的部分丢弃
+     *
+     * @return 下一个手势的开始位置
+     */
+    private int ramp(int index, Random random, float startX, float distance, int moves, float jitter) {
+        for (int i = 0; i <= moves && index < EVENTS; i++, index++) {
+            final float noise = i == 0 || jitter == 0 ? 0 : (random.nextFloat() * 2 - 1) * jitter;
+            x[index] = Math.max(0, startX + distance * i / moves + noise);
+            isDown[index] = i == 0;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,105 @@
+package ww.me.swipe_back_benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import ww.me.swipe_back_core.SwipeGestureEngine;
+
+/**
+ * 测量 {@link SwipeGestureEngine} 处理每个输入事件的耗时，结果按事件平均。
+ * 用 {@code -prof gc} 运行时 gc.alloc.rate.norm 应该是0。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwipeGestureEngineBenchmark {
+
+    private static final int WIDTH = 1080;
+    private static final int EDGE_SIZE = 60;
+    private static final int TOUCH_SLOP = 24;
+    private static final float FLING_VELOCITY = 1500;
+
+    @Param({GestureStreams.SLOW_DRAG, GestureStreams.FAST_FLING, GestureStreams.EDGE_TAP, GestureStreams.JITTERY_DRAG})
+    public String stream;
+
+    private GestureStreams mStreams;
+    private SwipeGestureEngine mEngine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mStreams = GestureStreams.create(stream, WIDTH, 42);
+        mEngine = new SwipeGestureEngine(EDGE_SIZE, TOUCH_SLOP,
+                SwipeGestureEngine.DEFAULT_DISMISS_THRESHOLD, FLING_VELOCITY);
+        mEngine.setWidth(WIDTH);
+    }
+
+    /**
+     * 每个MOVE都立即应用位置，相当于每个事件一帧
+     */
+    @Benchmark
+    @OperationsPerInvocation(GestureStreams.EVENTS)
+    public void perEvent(Blackhole blackhole) {
+        replay(blackhole, 1);
+    }
+
+    /**
+     * 每4个MOVE才应用一次位置，模拟高输入频率下按vsync合并
+     */
+    @Benchmark
+    @OperationsPerInvocation(GestureStreams.EVENTS)
+    public void coalescedPerFrame(Blackhole blackhole) {
+        replay(blackhole, 4);
+    }
+
+    private void replay(Blackhole blackhole, int eventsPerFrame) {
+        final float[] xs = mStreams.x;
+        final boolean[] isDown = mStreams.isDown;
+        final SwipeGestureEngine engine = mEngine;
+        for (int i = 0; i < GestureStreams.EVENTS; i++) {
+            final float x = xs[i];
+            if (isDown[i]) {
+                if (i > 0) {
+                    engine.applyPendingMove();
+                    blackhole.consume(engine.onRelease(0));
+                    blackhole.consume(engine.getSettleDuration());
+                }
+                engine.reset();
+                engine.onDown(x);
+                continue;
+            }
+            if (!engine.isInThresholdArea()) {
+                continue;
+            }
+            if (!engine.isSliding()) {
+                if (!engine.isBeyondTouchSlop(x)) {
+                    continue;
+                }
+                engine.commitSlide();
+            }
+            engine.onMove(x);
+            if (i % eventsPerFrame == 0 && engine.applyPendingMove()) {
+                blackhole.consume(engine.getPreviewTranslationX());
+                blackhole.consume(engine.getDisplayTranslationX());
+            }
+        }
+        engine.applyPendingMove();
+        blackhole.consume(engine.onRelease(0));
+    }
+}
@@ -0,0 +1,268 @@
+package ww.me.swipe_back_core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 录制下来的一段触摸事件流，用于在测试和基准中回放真实的滑动手势。
+ * <p>
+ * 二进制格式（大端）：
+ * <pre>
+ * int   magic 'SWBR'
+ * short version
+ * long  downTime            ms
+ * int   eventCount
+ * 每个事件：
+ *   byte  actionMasked      MotionEvent.ACTION_*
+ *   byte  actionIndex
+ *   int   eventTime         ms 相对downTime
+ *   byte  pointerCount
+ *   byte  pointerId         x pointerCount
+ *   short historySize
+ *   每个历史采样：int time（ms 相对downTime），float x, float y（x pointerCount）
+ *   当前采样：float x, float y（x pointerCount）
+ * </pre>
+ * 坐标是屏幕坐标（rawX/rawY），单位px。
+ */
+public final class GestureRecording {
+
+    private static final int MAGIC = 0x53574252; // 'SWBR'
+    private static final short VERSION = 1;
+
+    private final long mDownTime;
+    private final List<Event> mEvents;
+
+    private GestureRecording(long downTime, List<Event> events) {
+        mDownTime = downTime;
+        mEvents = Collections.unmodifiableList(events);
+    }
+
+    public long getDownTime() {
+        return mDownTime;
+    }
+
+    public List<Event> getEvents() {
+        return mEvents;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        final DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeLong(mDownTime);
+        data.writeInt(mEvents.size());
+        for (Event event : mEvents) {
+            final int pointerCount = event.getPointerCount();
+            data.writeByte(event.mActionMasked);
+            data.writeByte(event.mActionIndex);
+            data.writeInt((int) (event.mEventTime - mDownTime));
+            data.writeByte(pointerCount);
+            for (int p = 0; p < pointerCount; p++) {
+                data.writeByte(event.mPointerIds[p]);
+            }
+            final int historySize = event.getHistorySize();
+            data.writeShort(historySize);
+            for (int h = 0; h <= historySize; h++) {
+                if (h < historySize) {
+                    data.writeInt((int) (event.mSampleTimes[h] - mDownTime));
+                }
+                for (int p = 0; p < pointerCount; p++) {
+                    final int index = h * pointerCount + p;
+                    data.writeFloat(event.mX[index]);
+                    data.writeFloat(event.mY[index]);
+                }
+            }
+        }
+        data.flush();
+    }
+
+    public static GestureRecording readFrom(InputStream in) throws IOException {
+        final DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a gesture recording");
+        }
+        final short version = data.readShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported gesture recording version " + version);
+        }
+        final long downTime = data.readLong();
+        final int eventCount = data.readInt();
+        final List<Event> events = new ArrayList<Event>(eventCount);
+        for (int i = 0; i < eventCount; i++) {
+            final int actionMasked = data.readByte();
+            final int actionIndex = data.readByte();
+            final long eventTime = downTime + data.readInt();
+            final int pointerCount = data.readByte();
+            final int[] pointerIds = new int[pointerCount];
+            for (int p = 0; p < pointerCount; p++) {
+                pointerIds[p] = data.readByte();
+            }
+            final int historySize = data.readShort();
+            final long[] sampleTimes = new long[historySize + 1];
+            final float[] x = new float[(historySize + 1) * pointerCount];
+            final float[] y = new float[x.length];
+            for (int h = 0; h <= historySize; h++) {
+                sampleTimes[h] = h < historySize ? downTime + data.readInt() : eventTime;
+                for (int p = 0; p < pointerCount; p++) {
+                    final int index = h * pointerCount + p;
+                    x[index] = data.readFloat();
+                    y[index] = data.readFloat();
+                }
+            }
+            events.add(new Event(actionMasked, actionIndex, pointerIds, sampleTimes, x, y));
+        }
+        return new GestureRecording(downTime, events);
+    }
+
+    /**
+     * 一个触摸事件，包含它批量携带的历史采样。最后一个采样就是事件本身。
+     */
+    public static final class Event {
+
+        private final int mActionMasked;
+        private final int mActionIndex;
+        private final long mEventTime;
+        private final int[] mPointerIds;
+        private final long[] mSampleTimes; //历史采样的时间，最后一个是事件时间
+        private final float[] mX; //[sample * pointerCount + pointer]
+        private final float[] mY;
+
+        Event(int actionMasked, int actionIndex, int[] pointerIds, long[] sampleTimes, float[] x, float[] y) {
+            mActionMasked = actionMasked;
+            mActionIndex = actionIndex;
+            mPointerIds = pointerIds;
+            mSampleTimes = sampleTimes;
+            mEventTime = sampleTimes[sampleTimes.length - 1];
+            mX = x;
+            mY = y;
+        }
+
+        public int getActionMasked() {
+            return mActionMasked;
+        }
+
+        public int getActionIndex() {
+            return mActionIndex;
+        }
+
+        public long getEventTime() {
+            return mEventTime;
+        }
+
+        public int getPointerCount() {
+            return mPointerIds.length;
+        }
+
+        public int getPointerId(int pointerIndex) {
+            return mPointerIds[pointerIndex];
+        }
+
+        public int getHistorySize() {
+            return mSampleTimes.length - 1;
+        }
+
+        /**
+         * @param pos 历史采样的位置，{@link #getHistorySize()} 表示事件本身
+         */
+        public long getSampleTime(int pos) {
+            return mSampleTimes[pos];
+        }
+
+        public float getX(int pos, int pointerIndex) {
+            return mX[pos * mPointerIds.length + pointerIndex];
+        }
+
+        public float getY(int pos, int pointerIndex) {
+            return mY[pos * mPointerIds.length + pointerIndex];
+        }
+    }
+
+    /**
+     * 逐个事件地构建一段录制。事件和采样按时间顺序追加。
+     */
+    public static final class Builder {
+
+        private final long mDownTime;
+        private final List<Event> mEvents = new ArrayList<Event>();
+        private int[] mPointerIds;
+        private final List<Long> mSampleTimes = new ArrayList<Long>();
+        private final List<float[]> mSamples = new ArrayList<float[]>();
+
+        public Builder(long downTime) {
+            mDownTime = downTime;
+        }
+
+        /**
+         * 开始一个新的事件，后面用 {@link #addSample(long, float[])} 追加它的历史采样，最后一个采样是事件本身
+         */
+        public Builder beginEvent(int... pointerIds) {
+            if (mPointerIds != null) {
+                throw new IllegalStateException("Previous event was not ended");
+            }
+            if (pointerIds.length == 0) {
+                throw new IllegalArgumentException("An event needs at least one pointer");
+            }
+            mPointerIds = pointerIds.clone();
+            return this;
+        }
+
+        /**
+         * @param xy 每个pointer的x, y，顺序和 {@link #beginEvent(int...)} 中的pointerId一致
+         */
+        public Builder addSample(long time, float... xy) {
+            if (mPointerIds == null) {
+                throw new IllegalStateException("No event in progress");
+            }
+            if (xy.length != mPointerIds.length * 2) {
+                throw new IllegalArgumentException("Expected " + mPointerIds.length * 2 + " coordinates");
+            }
+            mSampleTimes.add(time);
+            mSamples.add(xy.clone());
+            return this;
+        }
+
+        public Builder endEvent(int actionMasked, int actionIndex) {
+            final int sampleCount = mSamples.size();
+            if (mPointerIds == null || sampleCount == 0) {
+                throw new IllegalStateException("An event needs at least one sample");
+            }
+            final int pointerCount = mPointerIds.length;
+            final long[] sampleTimes = new long[sampleCount];
+            final float[] x = new float[sampleCount * pointerCount];
+            final float[] y = new float[x.length];
+            for (int h = 0; h < sampleCount; h++) {
+                sampleTimes[h] = mSampleTimes.get(h);
+                final float[] xy = mSamples.get(h);
+                for (int p = 0; p < pointerCount; p++) {
+                    x[h * pointerCount + p] = xy[p * 2];
+                    y[h * pointerCount + p] = xy[p * 2 + 1];
+                }
+            }
+            mEvents.add(new Event(actionMasked, actionIndex, mPointerIds, sampleTimes, x, y));
+            mPointerIds = null;
+            mSampleTimes.clear();
+            mSamples.clear();
+            return this;
+        }
+
+        /**
+         * 单指、没有历史采样的事件
+         */
+        public Builder addEvent(int actionMasked, long time, float x, float y) {
+            return beginEvent(0).addSample(time, x, y).endEvent(actionMasked, 0);
+        }
+
+        public GestureRecording build() {
+            if (mPointerIds != null) {
+                throw new IllegalStateException("Last event was not ended");
+            }
+            return new GestureRecording(mDownTime, new ArrayList<Event>(mEvents));
+        }
+    }
+}
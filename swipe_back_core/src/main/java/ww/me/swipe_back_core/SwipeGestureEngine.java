@@ -0,0 +1,263 @@
+package ww.me.swipe_back_core;
+
+/**
+ * 滑动返回手势的状态机，不依赖Android：边缘区域判断、滑动阈值、滑动距离累计、视差位置和松手后的返回判断。
+ * 所有坐标都是屏幕上的X坐标，单位px。不是线程安全的，只在一个线程（主线程）中使用。
+ */
+public final class SwipeGestureEngine {
+
+    /**
+     * 默认的返回阈值：滑动距离超过宽度的1/3时返回
+     */
+    public static final float DEFAULT_DISMISS_THRESHOLD = 1 / 3f;
+    /**
+     * 默认的快速滑动阈值，单位dp/s：抬手时向右的速度超过它就直接返回
+     */
+    public static final float DEFAULT_FLING_DISMISS_VELOCITY = 500;
+
+    /**
+     * 松手时没有滑动距离，什么都不用做
+     */
+    public static final int RELEASE_NONE = 0;
+    /**
+     * 松手后回弹到当前页面
+     */
+    public static final int RELEASE_CANCEL = 1;
+    /**
+     * 松手后返回前一个页面
+     */
+    public static final int RELEASE_DISMISS = 2;
+
+    /**
+     * 松手动画使用的 DecelerateInterpolator 的factor
+     */
+    public static final float SETTLE_INTERPOLATOR_FACTOR = 2f;
+    static final long MIN_SETTLE_DURATION = 80; //ms
+    static final long MAX_CANCEL_DURATION = 150; //ms
+    static final long MAX_FINISH_DURATION = 300; //ms
+
+    private static final int PARALLAX_RATIO = 3; //预览页面移动速度是当前页面的1/3
+
+    private int mEdgeSize;  //px 拦截手势区间
+    private final int mTouchSlop;
+    private final float mDismissThreshold; //返回需要的滑动距离，占宽度的比例
+    private float mFlingDismissVelocity; //px/s
+    private int mWidth; //px 滑动区域的宽度
+    private boolean mIsInThresholdArea;
+    private boolean mIsSliding; //是否正在滑动
+    private float mLastPointX;  //记录手势在屏幕上的X轴坐标
+    private float mDistanceX;  //px 当前滑动距离 （正数或0）
+    private float mPendingPointX; //等待应用的手势X坐标
+    private boolean mHasPendingMove;
+    private long mSettleDuration; //ms 本次松手后动画的时长
+
+    /**
+     * @param edgeSize             px 从屏幕左边缘开始可以触发滑动的区域
+     * @param touchSlop            px 判定为滑动的最小距离
+     * @param dismissThreshold     松手时滑动距离超过宽度的多少比例就返回
+     * @param flingDismissVelocity px/s 松手速度超过它时按方向决定返回还是回弹
+     */
+    public SwipeGestureEngine(int edgeSize, int touchSlop, float dismissThreshold, float flingDismissVelocity) {
+        mEdgeSize = edgeSize;
+        mTouchSlop = touchSlop;
+        mDismissThreshold = dismissThreshold;
+        mFlingDismissVelocity = flingDismissVelocity;
+    }
+
+    public void setWidth(int width) {
+        mWidth = width;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * @param edgeSize px 从左边缘开始可以触发滑动的区域，屏幕密度变化时更新
+     */
+    public void setEdgeSize(int edgeSize) {
+        mEdgeSize = edgeSize;
+    }
+
+    /**
+     * @param flingDismissVelocity px/s 屏幕密度变化时更新
+     */
+    public void setFlingDismissVelocity(float flingDismissVelocity) {
+        mFlingDismissVelocity = flingDismissVelocity;
+    }
+
+    /**
+     * 手指按下
+     *
+     * @return 是否在可以触发滑动的边缘区域内
+     */
+    public boolean onDown(float x) {
+        mLastPointX = x;
+        mHasPendingMove = false;
+        mIsInThresholdArea = x >= 0 && x <= mEdgeSize;
+        return mIsInThresholdArea;
+    }
+
+    public boolean isInThresholdArea() {
+        return mIsInThresholdArea;
+    }
+
+    public boolean isSliding() {
+        return mIsSliding;
+    }
+
+    /**
+     * @return 从按下的位置到x是否超过了滑动阈值
+     */
+    public boolean isBeyondTouchSlop(float x) {
+        return Math.abs(x - mLastPointX) >= mTouchSlop;
+    }
+
+    /**
+     * 确认开始滑动
+     */
+    public void commitSlide() {
+        mIsSliding = true;
+    }
+
+    /**
+     * 手势结束或被打断，不再处于滑动中，已有的滑动距离保留给松手动画使用
+     */
+    public void endSlide() {
+        mIsSliding = false;
+    }
+
+    /**
+     * 记录最新的手势位置，等 {@link #applyPendingMove()} 时才更新滑动距离
+     */
+    public void onMove(float x) {
+        mPendingPointX = x;
+        mHasPendingMove = true;
+    }
+
+    public boolean hasPendingMove() {
+        return mHasPendingMove;
+    }
+
+    /**
+     * 把记录的手势位置累加到滑动距离中
+     *
+     * @return 是否有新的位置
+     */
+    public boolean applyPendingMove() {
+        if (!mHasPendingMove) {
+            return false;
+        }
+        mHasPendingMove = false;
+        mDistanceX = mDistanceX + mPendingPointX - mLastPointX;
+        mLastPointX = mPendingPointX;
+        if (mDistanceX < 0) {
+            mDistanceX = 0;
+        }
+        return true;
+    }
+
+    public float getDistanceX() {
+        return mDistanceX;
+    }
+
+    /**
+     * @return 当前预览页面的位置
+     */
+    public float getPreviewTranslationX() {
+        return getPreviewTranslationX(mDistanceX);
+    }
+
+    /**
+     * @return 滑动距离为distanceX时预览页面的位置
+     */
+    public float getPreviewTranslationX(float distanceX) {
+        return -mWidth / PARALLAX_RATIO + distanceX / PARALLAX_RATIO;
+    }
+
+    /**
+     * @return 当前页面的位置
+     */
+    public float getDisplayTranslationX() {
+        return mDistanceX;
+    }
+
+    /**
+     * 松手：根据抬手速度和滑动距离决定返回还是回弹，并计算动画时长
+     *
+     * @param velocityX px/s 抬手时的速度，向右为正
+     * @return {@link #RELEASE_NONE}, {@link #RELEASE_CANCEL} 或 {@link #RELEASE_DISMISS}
+     */
+    public int onRelease(float velocityX) {
+        mIsSliding = false;
+        mHasPendingMove = false;
+        if (mDistanceX == 0) {
+            return RELEASE_NONE;
+        }
+
+        final boolean slideCanceled;
+        if (Math.abs(velocityX) >= mFlingDismissVelocity) { //快速滑动，按方向决定
+            slideCanceled = velocityX < 0;
+        } else {
+            slideCanceled = mDistanceX <= mWidth * mDismissThreshold;
+        }
+        mSettleDuration = computeSettleDuration(slideCanceled ? mDistanceX : mWidth - mDistanceX,
+                slideCanceled ? -velocityX : velocityX,
+                slideCanceled ? MAX_CANCEL_DURATION : MAX_FINISH_DURATION);
+        return slideCanceled ? RELEASE_CANCEL : RELEASE_DISMISS;
+    }
+
+    /**
+     * @return ms 最近一次 {@link #onRelease(float)} 计算出的动画时长
+     */
+    public long getSettleDuration() {
+        return mSettleDuration;
+    }
+
+    /**
+     * 回到初始状态，滑动距离清零
+     */
+    public void reset() {
+        mIsSliding = false;
+        mHasPendingMove = false;
+        mDistanceX = 0;
+    }
+
+    /**
+     * 松手动画中被重新按住：从页面当前的位置继续滑动
+     *
+     * @param x         按下的位置
+     * @param distanceX 页面当前的位置
+     */
+    public void resumeSlide(float x, float distanceX) {
+        mLastPointX = x;
+        mHasPendingMove = false;
+        mDistanceX = Math.max(0, distanceX);
+        mIsInThresholdArea = true;
+        mIsSliding = true;
+    }
+
+    /**
+     * 当前手势被外部打断（例如窗口大小变化），直到下一次按下之前忽略剩下的事件
+     */
+    public void abort() {
+        reset();
+        mIsInThresholdArea = false;
+    }
+
+    /**
+     * 根据剩余距离和抬手速度计算动画时长，让动画的初速度和手指的速度衔接上
+     *
+     * @param distance    剩余距离 px
+     * @param velocity    朝目标方向的速度 px/s
+     * @param maxDuration 最长时长 ms
+     */
+    static long computeSettleDuration(float distance, float velocity, long maxDuration) {
+        if (velocity <= 0 || distance <= 0) {
+            return maxDuration;
+        }
+        // DecelerateInterpolator(f) 的初始斜率是 2f，初速度 = 2f * distance / duration
+        final long duration = (long) (2 * SETTLE_INTERPOLATOR_FACTOR * distance * 1000 / velocity);
+        return Math.max(MIN_SETTLE_DURATION, Math.min(maxDuration, duration));
+    }
+}
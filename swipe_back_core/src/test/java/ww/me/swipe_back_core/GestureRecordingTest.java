@@ -0,0 +1,62 @@
+package ww.me.swipe_back_core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class GestureRecordingTest {
+
+    private static final int ACTION_DOWN = 0;
+    private static final int ACTION_UP = 1;
+    private static final int ACTION_MOVE = 2;
+    private static final int ACTION_POINTER_DOWN = 5;
+
+    @Test
+    public void roundTripKeepsPointersHistoryAndTiming() throws IOException {
+        final long downTime = 123456789L;
+        GestureRecording recording = new GestureRecording.Builder(downTime)
+                .addEvent(ACTION_DOWN, downTime, 5, 300)
+                .beginEvent(0)
+                .addSample(downTime + 4, 12, 301)
+                .addSample(downTime + 8, 20, 302)
+                .addSample(downTime + 16, 31.5f, 303)
+                .endEvent(ACTION_MOVE, 0)
+                .beginEvent(0, 3)
+                .addSample(downTime + 20, 40, 304, 500, 600)
+                .endEvent(ACTION_POINTER_DOWN, 1)
+                .addEvent(ACTION_UP, downTime + 40, 60, 305)
+                .build();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        recording.writeTo(out);
+        GestureRecording read = GestureRecording.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(downTime, read.getDownTime());
+        assertEquals(4, read.getEvents().size());
+
+        GestureRecording.Event move = read.getEvents().get(1);
+        assertEquals(ACTION_MOVE, move.getActionMasked());
+        assertEquals(2, move.getHistorySize());
+        assertEquals(downTime + 4, move.getSampleTime(0));
+        assertEquals(downTime + 16, move.getEventTime());
+        assertEquals(20, move.getX(1, 0), 0);
+        assertEquals(31.5f, move.getX(2, 0), 0);
+
+        GestureRecording.Event pointerDown = read.getEvents().get(2);
+        assertEquals(ACTION_POINTER_DOWN, pointerDown.getActionMasked());
+        assertEquals(1, pointerDown.getActionIndex());
+        assertEquals(2, pointerDown.getPointerCount());
+        assertEquals(3, pointerDown.getPointerId(1));
+        assertEquals(500, pointerDown.getX(0, 1), 0);
+        assertEquals(600, pointerDown.getY(0, 1), 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsForeignData() throws IOException {
+        GestureRecording.readFrom(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6}));
+    }
+}
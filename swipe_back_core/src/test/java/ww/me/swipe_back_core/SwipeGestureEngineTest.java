@@ -0,0 +1,133 @@
+package ww.me.swipe_back_core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SwipeGestureEngineTest {
+
+    private static final int WIDTH = 900;
+    private static final int EDGE_SIZE = 60;
+    private static final int TOUCH_SLOP = 24;
+    private static final float FLING_VELOCITY = 1500;
+
+    private SwipeGestureEngine mEngine;
+
+    @Before
+    public void setUp() {
+        mEngine = new SwipeGestureEngine(EDGE_SIZE, TOUCH_SLOP, SwipeGestureEngine.DEFAULT_DISMISS_THRESHOLD, FLING_VELOCITY);
+        mEngine.setWidth(WIDTH);
+    }
+
+    @Test
+    public void downOutsideEdgeIsIgnored() {
+        assertTrue(mEngine.onDown(EDGE_SIZE));
+        assertFalse(mEngine.onDown(EDGE_SIZE + 1));
+        assertFalse(mEngine.isInThresholdArea());
+    }
+
+    @Test
+    public void resumedSlideContinuesFromTheCaughtPosition() {
+        mEngine.resumeSlide(500, 300);
+        assertTrue(mEngine.isSliding());
+        mEngine.onMove(520);
+        mEngine.applyPendingMove();
+        assertEquals(320, mEngine.getDisplayTranslationX(), 0);
+    }
+
+    @Test
+    public void abortedGestureIsIgnoredUntilNextDown() {
+        drag(10, 100);
+        mEngine.abort();
+        assertFalse(mEngine.isSliding());
+        assertFalse(mEngine.isInThresholdArea());
+        assertEquals(0, mEngine.getDistanceX(), 0);
+        assertTrue(mEngine.onDown(10));
+    }
+
+    @Test
+    public void touchSlopIsMeasuredFromDown() {
+        mEngine.onDown(10);
+        assertFalse(mEngine.isBeyondTouchSlop(10 + TOUCH_SLOP - 1));
+        assertTrue(mEngine.isBeyondTouchSlop(10 + TOUCH_SLOP));
+    }
+
+    @Test
+    public void pendingMovesAreCoalesced() {
+        drag(10, 100);
+        mEngine.onMove(150);
+        mEngine.onMove(200);
+        assertTrue(mEngine.applyPendingMove());
+        assertFalse(mEngine.applyPendingMove());
+        assertEquals(190, mEngine.getDistanceX(), 0);
+    }
+
+    @Test
+    public void distanceNeverGoesNegative() {
+        drag(10, 100);
+        mEngine.onMove(0);
+        mEngine.applyPendingMove();
+        assertEquals(0, mEngine.getDistanceX(), 0);
+    }
+
+    @Test
+    public void previewMovesAtOneThirdOfTheDisplay() {
+        assertEquals(-WIDTH / 3, mEngine.getPreviewTranslationX(0), 0);
+        drag(0, 300);
+        assertEquals(300, mEngine.getDisplayTranslationX(), 0);
+        assertEquals(-WIDTH / 3 + 100, mEngine.getPreviewTranslationX(), 0);
+    }
+
+    @Test
+    public void releaseWithoutDistanceDoesNothing() {
+        mEngine.onDown(10);
+        assertEquals(SwipeGestureEngine.RELEASE_NONE, mEngine.onRelease(0));
+    }
+
+    @Test
+    public void slowReleaseUsesDistanceThreshold() {
+        drag(0, WIDTH / 3);
+        assertEquals(SwipeGestureEngine.RELEASE_CANCEL, mEngine.onRelease(0));
+        assertEquals(SwipeGestureEngine.MAX_CANCEL_DURATION, mEngine.getSettleDuration());
+
+        mEngine.reset();
+        drag(0, WIDTH / 3 + 1);
+        assertEquals(SwipeGestureEngine.RELEASE_DISMISS, mEngine.onRelease(0));
+        assertEquals(SwipeGestureEngine.MAX_FINISH_DURATION, mEngine.getSettleDuration());
+    }
+
+    @Test
+    public void flingDecidesByDirection() {
+        drag(0, 100);
+        assertEquals(SwipeGestureEngine.RELEASE_DISMISS, mEngine.onRelease(FLING_VELOCITY));
+
+        mEngine.reset();
+        drag(0, WIDTH / 2);
+        assertEquals(SwipeGestureEngine.RELEASE_CANCEL, mEngine.onRelease(-FLING_VELOCITY));
+    }
+
+    @Test
+    public void fastReleaseSettlesFaster() {
+        drag(0, 600);
+        mEngine.onRelease(0);
+        final long slow = mEngine.getSettleDuration();
+
+        mEngine.reset();
+        drag(0, 600);
+        mEngine.onRelease(8000);
+        final long fast = mEngine.getSettleDuration();
+
+        assertTrue(fast < slow);
+        assertTrue(fast >= SwipeGestureEngine.MIN_SETTLE_DURATION);
+    }
+
+    private void drag(float fromX, float distance) {
+        mEngine.onDown(fromX);
+        mEngine.commitSlide();
+        mEngine.onMove(fromX + distance);
+        mEngine.applyPendingMove();
+    }
+}
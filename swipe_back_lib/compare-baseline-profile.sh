@@ -0,0 +1,62 @@
+#!/bin/sh
+# 比较有和没有 baseline profile 时，冷启动的进程中第一次滑动的耗时（SwipeFirstGestureBenchmark）。
+#
+# AGP 2.3.2 不会打包 src/main/baseline-prof.txt，所以这里手动安装：在设备上用 profman 把文本规则
+# 编译成二进制的 profile，打包成 dex metadata（.dm）和测试 APK 一起安装，需要 Android 9（API 28）以上。
+# 每一轮都强制停止进程后重新运行，比较的是两种安装方式下冷进程的第一次滑动，而不是 JIT 的预热。
+#
+# 用法（在项目根目录，连接一台设备）：swipe_back_lib/compare-baseline-profile.sh [每种方式的运行次数]
+set -e
+cd "$(dirname "$0")/.."
+
+RUNS=${1:-10}
+TEST_PKG=ww.me.swipe_back_lib.test
+TEST_APK=swipe_back_lib/build/outputs/apk/swipe_back_lib-debug-androidTest.apk
+PROFILE=swipe_back_lib/src/main/baseline-prof.txt
+BENCHMARK=ww.me.swipe_back_lib.SwipeFirstGestureBenchmark
+RUNNER=$TEST_PKG/android.support.test.runner.AndroidJUnitRunner
+DEVICE_TMP=/data/local/tmp
+
+sdk=$(adb shell getprop ro.build.version.sdk | tr -d '\r')
+if [ "$sdk" -lt 28 ]; then
+    echo "dex metadata needs API 28 or later, the device is API $sdk" >&2
+    exit 1
+fi
+
+./gradlew -q :swipe_back_lib:assembleDebugAndroidTest
+
+work=$(mktemp -d)
+trap 'rm -rf "$work"; adb shell rm -f $DEVICE_TMP/swipe-test.apk $DEVICE_TMP/swipe-prof.txt $DEVICE_TMP/swipe-primary.prof' EXIT
+# .dm 的文件名要和 APK 的一致
+cp "$TEST_APK" "$work/swipe-test.apk"
+
+# 文本规则 -> 这个 APK 的二进制 profile。dex 的位置按安装后的 base.apk 记录
+adb push "$work/swipe-test.apk" $DEVICE_TMP/swipe-test.apk >/dev/null
+adb push "$PROFILE" $DEVICE_TMP/swipe-prof.txt >/dev/null
+adb shell profman --create-profile-from=$DEVICE_TMP/swipe-prof.txt --apk=$DEVICE_TMP/swipe-test.apk \
+    --dex-location=base.apk --reference-profile-file=$DEVICE_TMP/swipe-primary.prof
+adb pull $DEVICE_TMP/swipe-primary.prof "$work/primary.prof" >/dev/null
+(cd "$work" && zip -q swipe-test.dm primary.prof)
+
+# 运行 RUNS 次，每次一个新的进程，输出第一次滑动每个事件耗时（us）的中位数
+first_gesture_median() {
+    i=0
+    while [ $i -lt "$RUNS" ]; do
+        adb shell am force-stop $TEST_PKG
+        adb shell am instrument -w -r -e class $BENCHMARK $RUNNER | tr -d '\r' \
+            | sed -n 's/.*first_gesture_us_per_event=\([0-9]*\).*/\1/p'
+        i=$((i + 1))
+    done | sort -n | awk '{ v[NR] = $1 } END { print v[int((NR + 1) / 2)] }'
+}
+
+# 没有 profile：只校验不编译，启动时全部解释执行和 JIT
+adb install -r -t "$work/swipe-test.apk" >/dev/null
+adb shell cmd package compile -f -m verify $TEST_PKG >/dev/null
+without=$(first_gesture_median)
+
+# 有 profile：和 .dm 一起安装，按 profile 提前编译
+adb install-multiple -r -t "$work/swipe-test.apk" "$work/swipe-test.dm" >/dev/null
+adb shell cmd package compile -f -m speed-profile $TEST_PKG >/dev/null
+with=$(first_gesture_median)
+
+echo "first swipe in a cold process, median of $RUNS runs: ${without}us/event without the profile, ${with}us/event with it"
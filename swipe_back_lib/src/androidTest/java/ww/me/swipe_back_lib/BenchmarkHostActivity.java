@@ -0,0 +1,17 @@
+package ww.me.swipe_back_lib;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.widget.FrameLayout;
+
+/**
+ * Plain host Activity for the on-device benchmarks.
+ */
+public class BenchmarkHostActivity extends Activity {
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(new FrameLayout(this));
+    }
+}
@@ -0,0 +1,197 @@
+package ww.me.swipe_back_lib;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures show()-to-first-draw of a SwipeBaseDialog for a few content layouts, and checks that
+ * the window is laid out only once from show() until a few frames after its first draw. Anything
+ * that changes the window after it is added (attributes, format, background) relayouts it and
+ * shows up as a second layout pass, even when it lands after the first frame.
+ * <p>
+ * Results are reported as instrumentation status and in logcat under the tag below.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SwipeDialogShowBenchmark {
+
+    private static final String TAG = "SwipeShowBenchmark";
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 20;
+    private static final int FRAMES_AFTER_FIRST_DRAW = 5;
+
+    private static final int LAYOUT_DEEP_TREE = 0;
+    private static final int[] LAYOUTS = {
+            android.R.layout.simple_list_item_1,
+            android.R.layout.activity_list_item,
+            android.R.layout.simple_expandable_list_item_2,
+            LAYOUT_DEEP_TREE,
+    };
+
+    @Rule
+    public ActivityTestRule<BenchmarkHostActivity> mActivityRule =
+            new ActivityTestRule<BenchmarkHostActivity>(BenchmarkHostActivity.class);
+
+    @Test
+    public void showToFirstDraw() throws Throwable {
+        final Bundle results = new Bundle();
+        for (int layout : LAYOUTS) {
+            final String name = layout == LAYOUT_DEEP_TREE ? "deep_tree"
+                    : mActivityRule.getActivity().getResources().getResourceEntryName(layout);
+            final long[] nanos = new long[ITERATIONS];
+            int maxLayoutPasses = 0;
+            int maxTraversals = 0;
+            for (int i = -WARMUP; i < ITERATIONS; i++) {
+                final ShowSample sample = showOnce(layout);
+                if (i >= 0) {
+                    nanos[i] = sample.mShowToDrawNanos;
+                    maxLayoutPasses = Math.max(maxLayoutPasses, sample.mLayoutPasses);
+                    maxTraversals = Math.max(maxTraversals, sample.mTraversals);
+                }
+            }
+            Arrays.sort(nanos);
+            final long median = nanos[ITERATIONS / 2];
+            Log.i(TAG, name + ": median show-to-first-draw " + median / 1000 + "us, layout passes "
+                    + maxLayoutPasses + ", traversals " + maxTraversals);
+            results.putLong(name + "_median_us", median / 1000);
+            results.putInt(name + "_layout_passes", maxLayoutPasses);
+            results.putInt(name + "_traversals", maxTraversals);
+
+            // some releases skip drawing in the first traversal with a new surface and traverse again
+            // without a layout, so only layout passes are asserted
+            assertEquals(name + " should be laid out once while showing", 1, maxLayoutPasses);
+        }
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, results);
+    }
+
+    /**
+     * Shows the dialog and counts layout passes and traversals from show() until
+     * {@link #FRAMES_AFTER_FIRST_DRAW} frames after the first draw.
+     */
+    private ShowSample showOnce(final int layout) throws Throwable {
+        final Activity activity = mActivityRule.getActivity();
+        final ShowSample sample = new ShowSample();
+        final CountDownLatch settled = new CountDownLatch(1);
+        final SwipeBaseDialog[] dialog = new SwipeBaseDialog[1];
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                dialog[0] = new SwipeBaseDialog(activity);
+                dialog[0].setContentView(createContent(activity, layout));
+                final View decor = dialog[0].getWindow().getDecorView();
+                final ViewTreeObserver observer = decor.getViewTreeObserver();
+                final ViewTreeObserver.OnGlobalLayoutListener layoutListener = new ViewTreeObserver.OnGlobalLayoutListener() {
+                    @Override
+                    public void onGlobalLayout() {
+                        sample.mLayoutPasses++;
+                    }
+                };
+                final ViewTreeObserver.OnPreDrawListener traversalListener = new ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        sample.mTraversals++;
+                        return true;
+                    }
+                };
+                final Choreographer.FrameCallback frameCounter = new Choreographer.FrameCallback() {
+                    private int mFrames;
+
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        if (++mFrames < FRAMES_AFTER_FIRST_DRAW) {
+                            Choreographer.getInstance().postFrameCallback(this);
+                            return;
+                        }
+                        final ViewTreeObserver treeObserver = decor.getViewTreeObserver();
+                        treeObserver.removeOnGlobalLayoutListener(layoutListener);
+                        treeObserver.removeOnPreDrawListener(traversalListener);
+                        settled.countDown();
+                    }
+                };
+                final ViewTreeObserver.OnDrawListener drawListener = new ViewTreeObserver.OnDrawListener() {
+                    @Override
+                    public void onDraw() {
+                        if (sample.mShowToDrawNanos != 0) {
+                            return;
+                        }
+                        sample.mShowToDrawNanos = SystemClock.elapsedRealtimeNanos() - sample.mShowStartNanos;
+                        final ViewTreeObserver.OnDrawListener self = this;
+                        decor.post(new Runnable() { // listeners cannot be removed from inside onDraw
+                            @Override
+                            public void run() {
+                                decor.getViewTreeObserver().removeOnDrawListener(self);
+                                Choreographer.getInstance().postFrameCallback(frameCounter);
+                            }
+                        });
+                    }
+                };
+                observer.addOnGlobalLayoutListener(layoutListener);
+                observer.addOnPreDrawListener(traversalListener);
+                observer.addOnDrawListener(drawListener);
+
+                sample.mShowStartNanos = SystemClock.elapsedRealtimeNanos();
+                dialog[0].show();
+            }
+        });
+        assertTrue("dialog was never drawn", settled.await(5, TimeUnit.SECONDS));
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                dialog[0].dismiss();
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        return sample;
+    }
+
+    private static View createContent(Activity activity, int layout) {
+        if (layout != LAYOUT_DEEP_TREE) {
+            return LayoutInflater.from(activity).inflate(layout, new FrameLayout(activity), false);
+        }
+        // 8 levels deep, 3 children per level
+        ViewGroup root = new LinearLayout(activity);
+        ViewGroup parent = root;
+        for (int depth = 0; depth < 8; depth++) {
+            final LinearLayout child = new LinearLayout(activity);
+            child.setOrientation(depth % 2 == 0 ? LinearLayout.VERTICAL : LinearLayout.HORIZONTAL);
+            parent.addView(child);
+            for (int i = 0; i < 2; i++) {
+                final TextView text = new TextView(activity);
+                text.setText("depth " + depth);
+                parent.addView(text);
+            }
+            parent = child;
+        }
+        return root;
+    }
+
+    private static class ShowSample {
+        long mShowStartNanos;
+        long mShowToDrawNanos;
+        int mLayoutPasses;
+        int mTraversals;
+    }
+}
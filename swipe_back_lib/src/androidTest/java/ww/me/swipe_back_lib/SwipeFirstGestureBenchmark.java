@@ -0,0 +1,108 @@
+package ww.me.swipe_back_lib;
+
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.MotionEvent;
+import android.widget.FrameLayout;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the per-event cost of the first swipe gesture in the process, and of warm ones.
+ * <p>
+ * The first gesture is the number the baseline profile is meant to improve. Comparing it with the
+ * warm gestures of the same run only shows the JIT warming up. To see the profile, compare
+ * separate cold processes with the profile installed and without it, which
+ * {@code swipe_back_lib/compare-baseline-profile.sh} does (API 28+).
+ * <p>
+ * Results are reported as instrumentation status and in logcat under the tag below.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SwipeFirstGestureBenchmark {
+
+    private static final String TAG = "SwipeFirstGesture";
+    private static final int MOVE_EVENTS = 60;
+    private static final int WARM_GESTURES = 5;
+
+    private SwipeBaseDialog mDialog;
+
+    @Rule
+    public ActivityTestRule<BenchmarkHostActivity> mActivityRule =
+            new ActivityTestRule<BenchmarkHostActivity>(BenchmarkHostActivity.class);
+
+    @Test
+    public void firstGestureAgainstWarm() throws Throwable {
+        final long firstNanos = runGesture();
+        long warmNanos = Long.MAX_VALUE;
+        for (int i = 0; i < WARM_GESTURES; i++) {
+            warmNanos = Math.min(warmNanos, runGesture());
+        }
+
+        final int events = MOVE_EVENTS + 2;
+        Log.i(TAG, "first gesture " + firstNanos / events / 1000 + "us/event, warm "
+                + warmNanos / events / 1000 + "us/event");
+        final Bundle results = new Bundle();
+        results.putLong("first_gesture_us_per_event", firstNanos / events / 1000);
+        results.putLong("warm_gesture_us_per_event", warmNanos / events / 1000);
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, results);
+
+        assertTrue(firstNanos > 0 && warmNanos > 0);
+    }
+
+    /**
+     * @return ns spent in dispatchTouchEvent for one full swipe that is cancelled
+     */
+    private long runGesture() throws Throwable {
+        final long[] total = new long[1];
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mDialog = new SwipeBaseDialog(mActivityRule.getActivity());
+                mDialog.setContentView(new FrameLayout(mActivityRule.getActivity()));
+                mDialog.show();
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                final SwipeBaseDialog dialog = mDialog;
+                final long downTime = SystemClock.uptimeMillis();
+                total[0] += dispatch(dialog, downTime, MotionEvent.ACTION_DOWN, 1);
+                for (int i = 1; i <= MOVE_EVENTS; i++) {
+                    total[0] += dispatch(dialog, downTime, MotionEvent.ACTION_MOVE, 1 + i * 4);
+                }
+                total[0] += dispatch(dialog, downTime, MotionEvent.ACTION_CANCEL, 1 + MOVE_EVENTS * 4);
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        SystemClock.sleep(500); // let the cancel settle finish
+
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mDialog.dismiss();
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        return total[0];
+    }
+
+    private static long dispatch(SwipeBaseDialog dialog, long downTime, int action, float x) {
+        final MotionEvent ev = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action, x, 100, 0);
+        final long start = System.nanoTime();
+        dialog.dispatchTouchEvent(ev);
+        final long elapsed = System.nanoTime() - start;
+        ev.recycle();
+        return elapsed;
+    }
+}
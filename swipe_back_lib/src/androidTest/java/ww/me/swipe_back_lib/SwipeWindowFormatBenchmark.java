@@ -0,0 +1,146 @@
+package ww.me.swipe_back_lib;
+
+import android.app.Activity;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.FrameMetrics;
+import android.view.MotionEvent;
+import android.view.Window;
+import android.widget.FrameLayout;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures what switching the window format costs on the frame that commits a slide: the first
+ * frame after the committing move is timed with the window kept opaque while idle (a format
+ * switch and a new surface) and without (no switch).
+ * <p>
+ * FrameMetrics only covers the app side of the frame. The surface is also re-created in the
+ * compositor, which this does not see. Neither does it see what the option saves: blending the
+ * window below while idle also happens in the compositor. Needs API 24. Results are reported as instrumentation
+ * status and in logcat under the tag below.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SwipeWindowFormatBenchmark {
+
+    private static final String TAG = "SwipeWindowFormat";
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 20;
+
+    @Rule
+    public ActivityTestRule<BenchmarkHostActivity> mActivityRule =
+            new ActivityTestRule<BenchmarkHostActivity>(BenchmarkHostActivity.class);
+
+    @Test
+    public void commitFrameWithAndWithoutFormatSwitch() throws Throwable {
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.N);
+        final HandlerThread metricsThread = new HandlerThread(TAG);
+        metricsThread.start();
+        try {
+            final long switching = medianCommitFrameNanos(true, new Handler(metricsThread.getLooper()));
+            final long fixed = medianCommitFrameNanos(false, new Handler(metricsThread.getLooper()));
+            Log.i(TAG, "commit frame with format switch " + switching / 1000 + "us, without " + fixed / 1000 + "us");
+            final Bundle results = new Bundle();
+            results.putLong("commit_frame_format_switch_us", switching / 1000);
+            results.putLong("commit_frame_no_switch_us", fixed / 1000);
+            InstrumentationRegistry.getInstrumentation().sendStatus(0, results);
+            assertTrue(switching > 0 && fixed > 0);
+        } finally {
+            metricsThread.quit();
+        }
+    }
+
+    private long medianCommitFrameNanos(boolean opaqueWhenIdle, Handler metricsHandler) throws Throwable {
+        final long[] nanos = new long[ITERATIONS];
+        for (int i = -WARMUP; i < ITERATIONS; i++) {
+            final long sample = commitFrameNanos(opaqueWhenIdle, metricsHandler);
+            if (i >= 0) {
+                nanos[i] = sample;
+            }
+        }
+        Arrays.sort(nanos);
+        return nanos[ITERATIONS / 2];
+    }
+
+    private long commitFrameNanos(final boolean opaqueWhenIdle, final Handler metricsHandler) throws Throwable {
+        final Activity activity = mActivityRule.getActivity();
+        final SwipeBaseDialog[] dialog = new SwipeBaseDialog[1];
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                dialog[0] = new SwipeBaseDialog(activity) {
+                    @Override
+                    public boolean supportOpaqueWhenIdle() {
+                        return opaqueWhenIdle;
+                    }
+                };
+                dialog[0].setContentView(new FrameLayout(activity));
+                dialog[0].show();
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        SystemClock.sleep(200); // let the show frames drain
+
+        final long[] total = new long[1];
+        final CountDownLatch measured = new CountDownLatch(1);
+        final Window.OnFrameMetricsAvailableListener listener = new Window.OnFrameMetricsAvailableListener() {
+            @Override
+            public void onFrameMetricsAvailable(Window window, FrameMetrics frameMetrics, int dropCount) {
+                if (measured.getCount() > 0) {
+                    total[0] = frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION);
+                    measured.countDown();
+                }
+            }
+        };
+        final long downTime = SystemClock.uptimeMillis();
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                dialog[0].getWindow().addOnFrameMetricsAvailableListener(listener, metricsHandler);
+                dispatch(dialog[0], downTime, MotionEvent.ACTION_DOWN, 1);
+                dispatch(dialog[0], downTime, MotionEvent.ACTION_MOVE, 100); // commits the slide
+            }
+        });
+        assertTrue("commit frame was never drawn", measured.await(5, TimeUnit.SECONDS));
+
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                dialog[0].getWindow().removeOnFrameMetricsAvailableListener(listener);
+                dispatch(dialog[0], downTime, MotionEvent.ACTION_CANCEL, 100);
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        SystemClock.sleep(500); // let the cancel settle finish
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                dialog[0].dismiss();
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        return total[0];
+    }
+
+    private static void dispatch(SwipeBaseDialog dialog, long downTime, int action, float x) {
+        final MotionEvent ev = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action, x, 100, 0);
+        dialog.dispatchTouchEvent(ev);
+        ev.recycle();
+    }
+}
@@ -0,0 +1,64 @@
+package ww.me.swipe_back_lib;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+
+/**
+ * 按尺寸复用截图用的Bitmap，重复打开对话框时不再分配新的Bitmap。只在主线程使用。
+ */
+final class BitmapPool {
+
+    private static final int MAX_POOL_SIZE = 2;
+    private static final ArrayList<Bitmap> sPool = new ArrayList<Bitmap>(MAX_POOL_SIZE);
+
+    private BitmapPool() {
+    }
+
+    /**
+     * @return 尺寸相同的缓存Bitmap，没有时新建一个
+     */
+    static Bitmap obtain(int width, int height) {
+        for (int i = sPool.size() - 1; i >= 0; i--) {
+            Bitmap bitmap = sPool.get(i);
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                sPool.remove(i);
+                return bitmap;
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * 归还Bitmap，超出容量时回收最早放入的一个
+     */
+    static void recycle(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || sPool.contains(bitmap)) {
+            return;
+        }
+        if (sPool.size() >= MAX_POOL_SIZE) {
+            sPool.remove(0).recycle();
+        }
+        sPool.add(bitmap);
+    }
+
+    /**
+     * 回收所有缓存的Bitmap，内存不足时调用
+     */
+    static void clear() {
+        for (int i = sPool.size() - 1; i >= 0; i--) {
+            sPool.remove(i).recycle();
+        }
+    }
+
+    /**
+     * @return bytes 缓存的Bitmap占用的内存
+     */
+    static long getRetainedBytes() {
+        long bytes = 0;
+        for (int i = sPool.size() - 1; i >= 0; i--) {
+            bytes += sPool.get(i).getAllocationByteCount();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,36 @@
+package ww.me.swipe_back_lib;
+
+import android.content.res.Resources;
+import android.graphics.drawable.GradientDrawable;
+
+/**
+ * 当前页面左侧的阴影。所有对话框共用同一个Drawable，按density只创建一次，
+ * 滑动时画在内容容器的overlay上，不需要添加View。
+ */
+final class EdgeShadow {
+
+    private static final int WIDTH = 16; //dp 阴影宽度
+    private static final int[] COLORS = {0x00000000, 0x17000000, 0x43000000};//分别为开始颜色，中间颜色，结束颜色
+
+    private static GradientDrawable sDrawable;
+    private static float sDensity;
+
+    private EdgeShadow() {
+    }
+
+    static GradientDrawable getDrawable(Resources resources) {
+        final float density = resources.getDisplayMetrics().density;
+        if (sDrawable == null || sDensity != density) {
+            sDrawable = new GradientDrawable(GradientDrawable.Orientation.LEFT_RIGHT, COLORS);
+            sDensity = density;
+        }
+        return sDrawable;
+    }
+
+    /**
+     * @return px 阴影宽度
+     */
+    static int getWidth(Resources resources) {
+        return (int) (WIDTH * resources.getDisplayMetrics().density + 0.5f);
+    }
+}
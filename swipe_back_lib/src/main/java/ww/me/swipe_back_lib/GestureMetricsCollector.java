@@ -0,0 +1,148 @@
+package ww.me.swipe_back_lib;
+
+import android.view.Choreographer;
+
+/**
+ * 在一次滑动手势中统计帧数和各阶段耗时。只在注册了监听或者自动调整效果等级时创建，没有滑动时不产生任何开销。
+ */
+final class GestureMetricsCollector implements Choreographer.FrameCallback {
+
+    private static final int PHASE_IDLE = 0;
+    private static final int PHASE_DRAG = 1;
+    private static final int PHASE_SETTLE = 2;
+
+    private final Choreographer mChoreographer;
+    private final long mFrameIntervalNanos;
+    private int mPhase = PHASE_IDLE;
+    private long mLastFrameTimeNanos;
+    private long mCommitEventTimeNanos;
+    private long mInputToFirstFrameNanos;
+    private long mAttachPreviewNanos;
+    private long mRestorePreviewNanos;
+    private long mSectionStartNanos;
+    private final int[] mFrameCounts = new int[3]; //按阶段统计：帧数
+    private final int[] mJankyFrameCounts = new int[3]; //按阶段统计：卡顿帧数
+    private final int[] mDroppedFrameCounts = new int[3]; //按阶段统计：跳过的vsync数
+
+    GestureMetricsCollector(Choreographer choreographer, float refreshRate) {
+        mChoreographer = choreographer;
+        mFrameIntervalNanos = (long) (1000000000L / (refreshRate > 0 ? refreshRate : 60f));
+    }
+
+    /**
+     * @param eventTime 确认滑动的输入事件时间，{@link android.os.SystemClock#uptimeMillis()} 时基
+     */
+    void onSlideCommitted(long eventTime) {
+        for (int i = 0; i < mFrameCounts.length; i++) {
+            mFrameCounts[i] = 0;
+            mJankyFrameCounts[i] = 0;
+            mDroppedFrameCounts[i] = 0;
+        }
+        mCommitEventTimeNanos = eventTime * 1000000L;
+        mInputToFirstFrameNanos = -1;
+        mAttachPreviewNanos = -1;
+        mRestorePreviewNanos = -1;
+        mLastFrameTimeNanos = 0;
+        if (mPhase == PHASE_IDLE) {
+            mChoreographer.postFrameCallback(this);
+        }
+        mPhase = PHASE_DRAG;
+    }
+
+    void onSlideFrame() {
+        if (mPhase == PHASE_DRAG && mInputToFirstFrameNanos < 0) {
+            mInputToFirstFrameNanos = System.nanoTime() - mCommitEventTimeNanos;
+        }
+    }
+
+    void beginSection() {
+        mSectionStartNanos = System.nanoTime();
+    }
+
+    void endAttachPreview() {
+        mAttachPreviewNanos = System.nanoTime() - mSectionStartNanos;
+    }
+
+    void endRestorePreview() {
+        mRestorePreviewNanos = System.nanoTime() - mSectionStartNanos;
+    }
+
+    void onSettleStarted() {
+        if (mPhase == PHASE_DRAG) {
+            mPhase = PHASE_SETTLE;
+        }
+    }
+
+    /**
+     * 松手动画被重新按住，之后的帧重新算作拖动
+     */
+    void onSettleCaught() {
+        if (mPhase == PHASE_SETTLE) {
+            mPhase = PHASE_DRAG;
+        }
+    }
+
+    /**
+     * 手势结束，停止统计。统计的数据保留到下一次确认滑动
+     *
+     * @return 是否在统计，否则没有这次手势的数据
+     */
+    boolean onGestureFinished() {
+        if (mPhase == PHASE_IDLE) {
+            return false;
+        }
+        mPhase = PHASE_IDLE;
+        mChoreographer.removeFrameCallback(this);
+        return true;
+    }
+
+    /**
+     * @return 最近一次手势中拖动和松手动画的帧数
+     */
+    int getFrameCount() {
+        return mFrameCounts[PHASE_DRAG] + mFrameCounts[PHASE_SETTLE];
+    }
+
+    /**
+     * @return 最近一次手势中拖动和松手动画的卡顿帧数
+     */
+    int getJankyFrameCount() {
+        return mJankyFrameCounts[PHASE_DRAG] + mJankyFrameCounts[PHASE_SETTLE];
+    }
+
+    /**
+     * 监听会持有回调的数据，所以每次都是新的对象，只在有监听时创建
+     *
+     * @return 最近一次手势的数据
+     */
+    SwipeGestureMetrics buildMetrics(int outcome) {
+        return new SwipeGestureMetrics(outcome, mInputToFirstFrameNanos, mAttachPreviewNanos, mRestorePreviewNanos,
+                mFrameCounts[PHASE_DRAG], mJankyFrameCounts[PHASE_DRAG], mDroppedFrameCounts[PHASE_DRAG],
+                mFrameCounts[PHASE_SETTLE], mJankyFrameCounts[PHASE_SETTLE], mDroppedFrameCounts[PHASE_SETTLE]);
+    }
+
+    void cancel() {
+        mPhase = PHASE_IDLE;
+        mChoreographer.removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (mPhase == PHASE_IDLE) {
+            return;
+        }
+        if (mLastFrameTimeNanos != 0) {
+            final long interval = frameTimeNanos - mLastFrameTimeNanos;
+            final int skipped = (int) ((interval + mFrameIntervalNanos / 2) / mFrameIntervalNanos) - 1;
+            mFrameCounts[mPhase]++;
+            if (interval * 2 > mFrameIntervalNanos * 3) {
+                mJankyFrameCounts[mPhase]++;
+            }
+            if (skipped > 0) {
+                mDroppedFrameCounts[mPhase] += skipped;
+            }
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+        mChoreographer.postFrameCallback(this);
+    }
+}
@@ -0,0 +1,65 @@
+package ww.me.swipe_back_lib;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+
+/**
+ * 下一层窗口的内容View留在原来的窗口中，直接平移它作为预览，对话框窗口滑动时变为透明。
+ * 不会引起宿主View树的detach/attach和重新测量、布局，滑动的开销和宿主的复杂程度无关
+ */
+class InPlacePreviewStrategy implements PreviewStrategy {
+
+    private Window mSource;
+    private View mHostContentView;
+
+    InPlacePreviewStrategy(Window source) {
+        mSource = source;
+    }
+
+    @Override
+    public void setSource(Window source) {
+        mSource = source;
+    }
+
+    @Override
+    public void prepare() {
+    }
+
+    @Override
+    public boolean attach() {
+        ViewGroup hostContainer = (ViewGroup) mSource.findViewById(Window.ID_ANDROID_CONTENT);
+        if (hostContainer == null || hostContainer.getChildCount() == 0) {
+            mHostContentView = null;
+            return false;
+        }
+        mHostContentView = hostContainer.getChildAt(0);
+        return true;
+    }
+
+    @Override
+    public View getPreviewView() {
+        return mHostContentView;
+    }
+
+    /**
+     * 只恢复平移和裁剪，View一直在原来的位置
+     */
+    @Override
+    public void detach() {
+        if (mHostContentView == null) return;
+        mHostContentView.setTranslationX(0);
+        mHostContentView.setClipBounds(null);
+        mHostContentView = null;
+    }
+
+    @Override
+    public void release() {
+        detach();
+    }
+
+    @Override
+    public long getRetainedBytes() {
+        return 0; //宿主的View树属于宿主
+    }
+}
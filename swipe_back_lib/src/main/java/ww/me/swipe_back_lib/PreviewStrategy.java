@@ -0,0 +1,47 @@
+package ww.me.swipe_back_lib;
+
+import android.view.View;
+import android.view.Window;
+
+/**
+ * 滑动返回时显示在当前页面下方的预览内容
+ */
+interface PreviewStrategy {
+
+    /**
+     * 设置被预览的窗口：下一层对话框或者宿主Activity的窗口。只在没有attach时调用
+     */
+    void setSource(Window source);
+
+    /**
+     * 对话框显示后调用，可以在这里提前准备预览（例如异步截图）
+     */
+    void prepare();
+
+    /**
+     * 把预览View加入到对话框的内容容器中（index 0）
+     *
+     * @return Is preview added successfully
+     */
+    boolean attach();
+
+    /**
+     * @return 当前参与滑动的预览View，没有attach时为null
+     */
+    View getPreviewView();
+
+    /**
+     * 把预览View从对话框的内容容器中移除，恢复宿主页面
+     */
+    void detach();
+
+    /**
+     * 释放缓存的资源，对话框关闭、被盖住或者内存不足时调用
+     */
+    void release();
+
+    /**
+     * @return bytes 缓存占用的内存，用于统计
+     */
+    long getRetainedBytes();
+}
@@ -0,0 +1,105 @@
+package ww.me.swipe_back_lib;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+import android.widget.FrameLayout;
+
+/**
+ * 把下一层窗口的内容View移到对话框中作为预览，滑动结束后再放回去
+ */
+class ReparentPreviewStrategy implements PreviewStrategy {
+
+    private Window mSource;
+    private final FrameLayout mContainer;
+    private ViewGroup mHostContainer; //预览View原来所在的容器
+    private View mHostContentView;
+    private ViewGroup.LayoutParams mLp;
+
+    ReparentPreviewStrategy(Window source, FrameLayout container) {
+        mSource = source;
+        mContainer = container;
+    }
+
+    @Override
+    public void setSource(Window source) {
+        mSource = source;
+    }
+
+    @Override
+    public void prepare() {
+    }
+
+    /**
+     * Remove view from the underlying window and add into current dialog
+     */
+    @Override
+    public boolean attach() {
+        ViewGroup hostContainer = (ViewGroup) mSource.findViewById(Window.ID_ANDROID_CONTENT);
+        if (hostContainer == null || hostContainer.getChildCount() == 0) {
+            mHostContentView = null;
+            return false;
+        }
+
+        mHostContainer = hostContainer;
+        mHostContentView = hostContainer.getChildAt(0);
+        hostContainer.removeView(mHostContentView);
+
+        mLp = mHostContentView.getLayoutParams();
+        FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
+        mContainer.addView(mHostContentView, 0, params);
+        return true;
+    }
+
+    @Override
+    public View getPreviewView() {
+        return mHostContentView;
+    }
+
+    /**
+     * Remove the mHostContentView at current container and put it back where it came from.
+     */
+    @Override
+    public void detach() {
+        if (mHostContentView == null) return;
+        mContainer.removeView(mHostContentView);
+        mHostContainer.addView(mHostContentView, mLp);
+        premeasure();
+        mHostContainer = null;
+        mHostContentView = null;
+        mLp = null;
+    }
+
+    /**
+     * 放回之后马上按宿主容器的大小测量、布局好。加入容器时会给它标记重新布局，所以一定要在addView之后；
+     * 测量条件不变时宿主的布局会直接使用这次的结果，放回的同一帧里不需要再测量整棵树
+     */
+    private void premeasure() {
+        final int width = mHostContainer.getWidth() - mHostContainer.getPaddingLeft() - mHostContainer.getPaddingRight();
+        final int height = mHostContainer.getHeight() - mHostContainer.getPaddingTop() - mHostContainer.getPaddingBottom();
+        if (width <= 0 || height <= 0 || mLp == null
+                || mLp.width != ViewGroup.LayoutParams.MATCH_PARENT || mLp.height != ViewGroup.LayoutParams.MATCH_PARENT
+                || mLp instanceof ViewGroup.MarginLayoutParams && hasMargins((ViewGroup.MarginLayoutParams) mLp)) {
+            return; //只处理setContentView()的常见情况，其他的交给宿主正常布局
+        }
+        mHostContentView.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+        final int left = mHostContainer.getPaddingLeft();
+        final int top = mHostContainer.getPaddingTop();
+        mHostContentView.layout(left, top, left + width, top + height);
+    }
+
+    private static boolean hasMargins(ViewGroup.MarginLayoutParams lp) {
+        return lp.leftMargin != 0 || lp.topMargin != 0 || lp.rightMargin != 0 || lp.bottomMargin != 0;
+    }
+
+    @Override
+    public void release() {
+        detach();
+    }
+
+    @Override
+    public long getRetainedBytes() {
+        return 0; //宿主的View树属于宿主
+    }
+}
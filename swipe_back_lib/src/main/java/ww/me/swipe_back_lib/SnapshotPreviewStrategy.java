@@ -0,0 +1,237 @@
+package ww.me.swipe_back_lib;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.PixelCopy;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+import android.widget.FrameLayout;
+
+/**
+ * 对下一层窗口截图作为预览，它的View树不会被移动。
+ * Android 8.0以上用PixelCopy异步截图，其他情况在主线程空闲时软件绘制。
+ */
+class SnapshotPreviewStrategy implements PreviewStrategy, MessageQueue.IdleHandler {
+
+    private Window mSource;
+    private final FrameLayout mContainer;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Canvas mCanvas = new Canvas();
+    private final int[] mLocation = new int[2];
+    private final FrameLayout.LayoutParams mLayoutParams = new FrameLayout.LayoutParams(
+            ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
+    private SnapshotView mSnapshotView;
+    private Bitmap mBitmap;
+    private Bitmap mCapturingBitmap; //PixelCopy正在写入的Bitmap
+    private boolean mIsSnapshotValid; //截图是否是最新的
+    private boolean mIsIdleScheduled;
+    private boolean mIsAttached;
+    private PixelCopyCallback mPixelCopyCallback;
+
+    SnapshotPreviewStrategy(Window source, FrameLayout container) {
+        mSource = source;
+        mContainer = container;
+    }
+
+    @Override
+    public void setSource(Window source) {
+        if (mSource != source) {
+            mSource = source;
+            mIsSnapshotValid = false;
+            if (mBitmap == mCapturingBitmap) {
+                mBitmap = null; //正在截的是原来的窗口，在回调中归还
+            }
+        }
+    }
+
+    @Override
+    public void prepare() {
+        if (mIsSnapshotValid || mIsIdleScheduled || mCapturingBitmap != null) {
+            return;
+        }
+        Looper.myQueue().addIdleHandler(this);
+        mIsIdleScheduled = true;
+    }
+
+    @Override
+    public boolean queueIdle() {
+        mIsIdleScheduled = false;
+        final View decorView = mSource.getDecorView();
+        if (!ensureBitmap(decorView)) {
+            return false;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && decorView.isHardwareAccelerated()) {
+            if (mPixelCopyCallback == null) {
+                mPixelCopyCallback = new PixelCopyCallback(this);
+            }
+            mCapturingBitmap = mBitmap;
+            mPixelCopyCallback.request(mSource, mBitmap, mHandler);
+        } else {
+            drawSnapshot(decorView);
+        }
+        return false;
+    }
+
+    @Override
+    public boolean attach() {
+        final View decorView = mSource.getDecorView();
+        if (!mIsSnapshotValid) { //截图还没准备好，同步绘制一次
+            cancelIdle();
+            if (!ensureBitmap(decorView)) {
+                return false;
+            }
+            drawSnapshot(decorView);
+        }
+
+        if (mSnapshotView == null) {
+            mSnapshotView = new SnapshotView(mContainer.getContext());
+        }
+        mContainer.getLocationOnScreen(mLocation);
+        final int containerTop = mLocation[1];
+        decorView.getLocationOnScreen(mLocation);
+        mSnapshotView.setSnapshot(mBitmap, containerTop - mLocation[1]);
+        mContainer.addView(mSnapshotView, 0, mLayoutParams);
+        mIsAttached = true;
+        return true;
+    }
+
+    @Override
+    public View getPreviewView() {
+        return mIsAttached ? mSnapshotView : null;
+    }
+
+    @Override
+    public void detach() {
+        if (!mIsAttached) return;
+        mContainer.removeView(mSnapshotView);
+        mIsAttached = false;
+        mIsSnapshotValid = false; //宿主可能已经变化，空闲时重新截图
+        prepare();
+    }
+
+    @Override
+    public void release() {
+        cancelIdle();
+        if (mIsAttached) {
+            mContainer.removeView(mSnapshotView);
+            mIsAttached = false;
+        }
+        if (mSnapshotView != null) {
+            mSnapshotView.setSnapshot(null, 0);
+        }
+        if (mBitmap != mCapturingBitmap) { //正在截图的Bitmap在回调中归还
+            BitmapPool.recycle(mBitmap);
+        }
+        mBitmap = null;
+        mIsSnapshotValid = false;
+    }
+
+    @Override
+    public long getRetainedBytes() {
+        long bytes = mBitmap == null ? 0 : mBitmap.getAllocationByteCount();
+        if (mCapturingBitmap != null && mCapturingBitmap != mBitmap) {
+            bytes += mCapturingBitmap.getAllocationByteCount();
+        }
+        return bytes;
+    }
+
+    private void onPixelCopyFinished(boolean succeeded) {
+        final Bitmap bitmap = mCapturingBitmap;
+        mCapturingBitmap = null;
+        if (bitmap != mBitmap) { //截图期间已经被释放
+            BitmapPool.recycle(bitmap);
+            return;
+        }
+        if (succeeded) {
+            mIsSnapshotValid = true;
+            if (mIsAttached) {
+                mSnapshotView.invalidate();
+            }
+        }
+    }
+
+    private void cancelIdle() {
+        if (mIsIdleScheduled) {
+            Looper.myQueue().removeIdleHandler(this);
+            mIsIdleScheduled = false;
+        }
+    }
+
+    private boolean ensureBitmap(View decorView) {
+        final int width = decorView.getWidth();
+        final int height = decorView.getHeight();
+        if (width == 0 || height == 0) {
+            return false;
+        }
+        if (mBitmap != null && mBitmap.getWidth() == width && mBitmap.getHeight() == height) {
+            return true;
+        }
+        if (mBitmap != mCapturingBitmap) {
+            BitmapPool.recycle(mBitmap);
+        }
+        mBitmap = BitmapPool.obtain(width, height);
+        mIsSnapshotValid = false;
+        return true;
+    }
+
+    private void drawSnapshot(View decorView) {
+        mBitmap.eraseColor(Color.TRANSPARENT);
+        mCanvas.setBitmap(mBitmap);
+        decorView.draw(mCanvas);
+        mCanvas.setBitmap(null);
+        mIsSnapshotValid = true;
+    }
+
+    @TargetApi(Build.VERSION_CODES.O)
+    private static class PixelCopyCallback implements PixelCopy.OnPixelCopyFinishedListener {
+
+        private final SnapshotPreviewStrategy mStrategy;
+
+        PixelCopyCallback(SnapshotPreviewStrategy strategy) {
+            mStrategy = strategy;
+        }
+
+        void request(Window window, Bitmap bitmap, Handler handler) {
+            PixelCopy.request(window, bitmap, this, handler);
+        }
+
+        @Override
+        public void onPixelCopyFinished(int copyResult) {
+            mStrategy.onPixelCopyFinished(copyResult == PixelCopy.SUCCESS);
+        }
+    }
+
+    /**
+     * 把截图按对话框内容区域的偏移画出来
+     */
+    private static class SnapshotView extends View {
+
+        private Bitmap mBitmap;
+        private int mOffsetY;
+
+        SnapshotView(Context context) {
+            super(context);
+        }
+
+        void setSnapshot(Bitmap bitmap, int offsetY) {
+            mBitmap = bitmap;
+            mOffsetY = offsetY;
+            invalidate();
+        }
+
+        @Override
+        protected void onDraw(Canvas canvas) {
+            if (mBitmap != null && !mBitmap.isRecycled()) {
+                canvas.drawBitmap(mBitmap, 0, -mOffsetY, null);
+            }
+        }
+    }
+}
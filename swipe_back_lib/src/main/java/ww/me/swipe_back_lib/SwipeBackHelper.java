@@ -2,57 +2,178 @@ package ww.me.swipe_back_lib;
 
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
+import android.animation.ValueAnimator;
 import android.app.Activity;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Color;
-import android.os.Bundle;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.GradientDrawable;
+import android.os.Build;
 import android.os.Handler;
 import android.os.Message;
+import android.os.Trace;
+import android.util.DisplayMetrics;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewConfiguration;
+import android.view.VelocityTracker;
 import android.view.ViewGroup;
 import android.view.Window;
+import android.view.WindowInsets;
+import android.view.WindowManager;
 import android.view.animation.DecelerateInterpolator;
-import android.view.animation.Interpolator;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.FrameLayout;
 
+import ww.me.swipe_back_core.SwipeGestureEngine;
+
 
 public class SwipeBackHelper extends Handler {
 
     private static final String TAG = "SwipeBackHelper";
 
-    private static final String CURRENT_POINT_X = "currentPointX"; //点击事件
-
-    private static final int MSG_ACTION_DOWN = 1; //点击事件
-    private static final int MSG_ACTION_MOVE = 2; //滑动事件
-    private static final int MSG_ACTION_UP = 3;  //点击结束
     private static final int MSG_SLIDE_CANCEL = 4; //开始滑动，不返回前一个页面
     private static final int MSG_SLIDE_CANCELED = 5;  //结束滑动，不返回前一个页面
     private static final int MSG_SLIDE_PROCEED = 6; //开始滑动，返回前一个页面
     private static final int MSG_SLIDE_FINISHED = 7;//结束滑动，返回前一个页面
 
-    private static final int SHADOW_WIDTH = 50; //px 阴影宽度
+    /**
+     * 把宿主Activity的内容View移到对话框中作为预览
+     */
+    public static final int PREVIEW_MODE_REPARENT = 0;
+    /**
+     * 使用宿主窗口的截图作为预览，宿主的View树保持不动
+     */
+    public static final int PREVIEW_MODE_SNAPSHOT = 1;
+    /**
+     * 宿主Activity的内容View留在自己的窗口中直接平移，对话框窗口滑动时变为透明
+     */
+    public static final int PREVIEW_MODE_IN_PLACE = 2;
+
+    /**
+     * 滑动效果的等级由运行时的卡顿情况自动调整
+     */
+    public static final int QUALITY_TIER_AUTO = -1;
+    /**
+     * 完整效果：阴影、视差和正常时长的松手动画
+     */
+    public static final int QUALITY_TIER_FULL = 0;
+    /**
+     * 不绘制阴影
+     */
+    public static final int QUALITY_TIER_NO_SHADOW = 1;
+    /**
+     * 不绘制阴影，预览不跟着移动
+     */
+    public static final int QUALITY_TIER_NO_PARALLAX = 2;
+    /**
+     * 在上一级的基础上，松手动画的时长减半
+     */
+    public static final int QUALITY_TIER_SHORT_SETTLE = 3;
+    /**
+     * 在上一级的基础上，预览使用宿主的截图
+     */
+    public static final int QUALITY_TIER_STATIC_SNAPSHOT = 4;
+
+    /**
+     * 默认的返回阈值：滑动距离超过宽度的1/3时返回
+     */
+    public static final float DEFAULT_DISMISS_THRESHOLD = SwipeGestureEngine.DEFAULT_DISMISS_THRESHOLD;
+    /**
+     * 默认的快速滑动阈值，单位dp/s：抬手时向右的速度超过它就直接返回
+     */
+    public static final float DEFAULT_FLING_DISMISS_VELOCITY = SwipeGestureEngine.DEFAULT_FLING_DISMISS_VELOCITY;
+
     private static final int EDGE_SIZE = 20;  //dp 默认拦截手势区间
+    private static final DecelerateInterpolator SETTLE_INTERPOLATOR =
+            new DecelerateInterpolator(SwipeGestureEngine.SETTLE_INTERPOLATOR_FACTOR);
+    private static GestureMetricsListener sGestureMetricsListener;
+
+    private static final int MAX_LAYER_SIZE = 4096; //px 硬件层纹理允许的最大边长
+    private static final int LAYER_BUDGET_SCREENS = 3; //硬件层占用的内存上限，以整屏ARGB_8888计算
     private final SlideBackManager mSlideBackManager;
     private final FrameLayout mCurrentContentView;
     private final Window mWindow;
-    private int mEdgeSize;  //px 拦截手势区间
-    private boolean mIsSliding; //是否正在滑动
+    private final SwipeGestureEngine mEngine;
     private boolean mIsSlideAnimPlaying; //滑动动画展示过程中
-    private float mDistanceX;  //px 当前滑动距离 （正数或0）
-    private float mLastPointX;  //记录手势在屏幕上的X轴坐标
     private boolean mIsSupportSlideBack; //
-    private int mTouchSlop;
-    private boolean mIsInThresholdArea;
+    private final int mMaxFlingVelocity; //px/s
+    private final float mFlingDismissVelocityDp; //dp/s
+    private boolean mIsGeometryValid; //内容容器的几何信息是否有效，布局变化时失效，下次按下时重新计算
+    private float mContainerX; //px 手势区域左边缘在窗口中的X坐标
+    private final int[] mLocationInWindow = new int[2];
+    private long mLayerBudgetBytes; //硬件层可以使用的显存，按屏幕大小计算
+    private final View.OnLayoutChangeListener mGeometryInvalidator = new View.OnLayoutChangeListener() {
+        @Override
+        public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                   int oldLeft, int oldTop, int oldRight, int oldBottom) {
+            if (left != oldLeft || top != oldTop || right != oldRight || bottom != oldBottom) {
+                mIsGeometryValid = false;
+            }
+        }
+    };
+    private VelocityTracker mVelocityTracker;
+    private final GradientDrawable mShadowDrawable;
+    private final int mShadowWidth; //px
+    private boolean mIsSettleDismissing; //正在播放的松手动画是不是返回的动画
+    private final SettleListener mSettleListener = new SettleListener();
+    private final ValueAnimator mSettleAnimator; //松手动画：两个页面和阴影都由这一个动画驱动，每次松手不再创建新的动画
+    private float mSettlePreviewFromX; //松手动画的起点和终点
+    private float mSettlePreviewToX;
+    private float mSettleDisplayFromX;
+    private float mSettleDisplayToX;
     private Activity mHostActivity;
     private ViewManager mViewManager;
-    private AnimatorSet mAnimatorSet;
+    private PreviewStrategy mPreviewStrategy; //效果降级时可能在两次手势之间被替换
+    private final int mPreviewMode;
+    private int mActivePreviewMode; //当前mPreviewStrategy对应的模式
+    private final int mFixedQualityTier;
+    private int mQualityTier = QUALITY_TIER_FULL; //当前手势使用的效果等级，按下时确定
+    private final Choreographer mChoreographer;
+    private boolean mIsUnbufferedDispatch; //是否关闭输入事件的批量分发，降低延迟
+    private final boolean mIsOverdrawReduction; //滑动时把预览裁剪到露出的区域，并且不绘制对话框窗口的背景
+    private final Rect mPreviewClip = new Rect();
+    private final boolean mIsOpaqueWhenIdle; //不滑动时窗口不透明，合成时不需要混合下面的窗口
+    private boolean mIsWindowOpaque;
+    private boolean mIsHideWindowBackground; //滑动时是否隐藏对话框窗口的背景
+    private Drawable mHiddenDecorBackground; //滑动期间被隐藏的对话框窗口背景
+    private int mDecorBackgroundAlpha;
+    private boolean mIsFrameScheduled; //是否已经安排了下一帧的位置更新
+    private final View[] mLayerViews = new View[2]; //滑动过程中被提升为硬件层的View
+    private final int[] mLayerTypes = new int[2]; //提升之前的layerType，用于恢复
+    private int mLayerCount;
+    private long mLayerBytes;
+    private int mWindowBackgroundColor;
+    private boolean mIsWindowBackgroundResolved;
+    private GestureMetricsCollector mMetricsCollector;
+    private boolean mIsHandoffScheduled; //宿主已经恢复，等下一帧关闭对话框
+    private boolean mIsWindowUntouchable; //交还宿主时对话框窗口不接收触摸
+    private final Choreographer.FrameCallback mHandoffFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mIsHandoffScheduled = false;
+            if (mSlideBackManager != null)
+                mSlideBackManager.onSwipeBackAnimFinished();
+        }
+    };
+    private final Choreographer.FrameCallback mSlideFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mIsFrameScheduled = false;
+            if (mMetricsCollector != null) {
+                mMetricsCollector.onSlideFrame();
+            }
+            Trace.beginSection("SwipeBack#drag");
+            onSliding();
+            Trace.endSection();
+        }
+    };
 
     /**
      * @param slideBackManager
@@ -67,12 +188,96 @@ public class SwipeBackHelper extends Handler {
         mWindow = dialogWindow;
         Log.e(TAG, "SwipeBackHelper: " + mHostActivity);
         mIsSupportSlideBack = mSlideBackManager.supportSlideBack();
+        // 可选的设置，只实现 SlideBackManager 时使用原来的行为
+        final SlideBackOptions options = slideBackManager instanceof SlideBackOptions
+                ? (SlideBackOptions) slideBackManager : null;
+        mIsUnbufferedDispatch = options != null && options.supportUnbufferedDispatch();
+        mIsOverdrawReduction = options != null && options.supportOverdrawReduction();
+        mIsOpaqueWhenIdle = options != null && options.supportOpaqueWhenIdle();
+        mChoreographer = Choreographer.getInstance();
+        SwipeMemoryTrimmer.register(mHostActivity);
         mCurrentContentView = (FrameLayout) dialogWindow.findViewById(Window.ID_ANDROID_CONTENT);
 
+        mShadowDrawable = EdgeShadow.getDrawable(mHostActivity.getResources());
+        mShadowWidth = EdgeShadow.getWidth(mHostActivity.getResources());
         mViewManager = new ViewManager();
-        mTouchSlop = ViewConfiguration.get(mHostActivity).getScaledTouchSlop();
-        final float density = mHostActivity.getResources().getDisplayMetrics().density;
-        mEdgeSize = (int) (EDGE_SIZE * density + 0.5f); //滑动拦截事件的区域
+        mPreviewMode = options != null ? options.getPreviewMode() : PREVIEW_MODE_REPARENT;
+        mFixedQualityTier = options != null ? options.getQualityTier() : QUALITY_TIER_FULL;
+        mQualityTier = resolveQualityTier();
+        setActivePreviewMode(mQualityTier >= QUALITY_TIER_STATIC_SNAPSHOT ? PREVIEW_MODE_SNAPSHOT : mPreviewMode);
+        final ViewConfiguration configuration = ViewConfiguration.get(mHostActivity);
+        mMaxFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+        mFlingDismissVelocityDp = options != null ? options.getFlingDismissVelocity() : DEFAULT_FLING_DISMISS_VELOCITY;
+        // 宽度、边缘区域和速度阈值在第一次按下时由 ensureGeometry() 设置
+        mEngine = new SwipeGestureEngine(0, configuration.getScaledTouchSlop(),
+                options != null ? options.getDismissThreshold() : DEFAULT_DISMISS_THRESHOLD, 0);
+        mSettleAnimator = ValueAnimator.ofFloat(0, 1);
+        mSettleAnimator.setInterpolator(SETTLE_INTERPOLATOR);
+        mSettleAnimator.addListener(mSettleListener);
+        mSettleAnimator.addUpdateListener(mSettleListener);
+    }
+
+    /**
+     * 注册全局的手势性能监听，每次滑动结束后回调一次。传入null取消监听，没有监听时几乎没有开销。
+     */
+    public static void setGestureMetricsListener(GestureMetricsListener listener) {
+        sGestureMetricsListener = listener;
+    }
+
+    /**
+     * 设置叠在一起的对话框可以占用的内存：被盖住的对话框窗口超出预算时会被隐藏，
+     * 上面的对话框关闭后再显示。紧挨着的下一层总是保留，用作滑动时的预览。
+     *
+     * @param bytes 小于0时使用默认预算（两个屏幕大小的窗口）
+     */
+    public static void setPreviewStackMemoryBudget(long bytes) {
+        SwipeDialogStack.setMemoryBudget(bytes);
+    }
+
+    /**
+     * @return 当前的滑动效果等级，{@link #QUALITY_TIER_FULL} 到 {@link #QUALITY_TIER_STATIC_SNAPSHOT}
+     */
+    public int getQualityTier() {
+        return mQualityTier;
+    }
+
+    private int resolveQualityTier() {
+        return mFixedQualityTier == QUALITY_TIER_AUTO ? SwipeQualityGovernor.getTier() : mFixedQualityTier;
+    }
+
+    /**
+     * 切换预览的方式，只在没有滑动时调用
+     */
+    private void setActivePreviewMode(int previewMode) {
+        if (mPreviewStrategy != null) {
+            if (previewMode == mActivePreviewMode) {
+                return;
+            }
+            mPreviewStrategy.release();
+        }
+        mActivePreviewMode = previewMode;
+        mPreviewStrategy = createPreviewStrategy(previewMode);
+        // 原地平移时预览在下面的窗口里，对话框窗口的背景必须隐藏才能看到
+        mIsHideWindowBackground = mIsOverdrawReduction || previewMode == PREVIEW_MODE_IN_PLACE;
+    }
+
+    /**
+     * @return 滑动距离为distanceX时预览的位置，不使用视差时预览不动
+     */
+    private float getPreviewX(float distanceX) {
+        return mQualityTier >= QUALITY_TIER_NO_PARALLAX ? 0 : mEngine.getPreviewTranslationX(distanceX);
+    }
+
+    private PreviewStrategy createPreviewStrategy(int previewMode) {
+        switch (previewMode) {
+            case PREVIEW_MODE_SNAPSHOT:
+                return new SnapshotPreviewStrategy(mHostActivity.getWindow(), mCurrentContentView);
+            case PREVIEW_MODE_IN_PLACE:
+                return new InPlacePreviewStrategy(mHostActivity.getWindow());
+            case PREVIEW_MODE_REPARENT:
+            default:
+                return new ReparentPreviewStrategy(mHostActivity.getWindow(), mCurrentContentView);
+        }
     }
 
     public boolean processTouchEvent(MotionEvent ev) {
@@ -80,28 +285,45 @@ public class SwipeBackHelper extends Handler {
             return false;
         }
 
-        if (mIsSlideAnimPlaying) {  //正在滑动动画播放中，直接消费手势事件
-            return true;
+        if (mIsHandoffScheduled) { //对话框已经看不见，已经分发到这个窗口的事件也不消费
+            return false;
         }
 
         final int action = ev.getAction() & MotionEvent.ACTION_MASK;
+        if (mIsSlideAnimPlaying) {  //正在滑动动画播放中：重新按下时接住页面继续拖动，其他事件直接消费
+            if (action == MotionEvent.ACTION_DOWN) {
+                catchSettle(ev);
+            }
+            return true;
+        }
+
         if (action == MotionEvent.ACTION_DOWN) {
-            mLastPointX = ev.getRawX();
-            mIsInThresholdArea = mLastPointX >= 0 && mLastPointX <= mEdgeSize;
+            ensureGeometry();
+            mEngine.onDown(ev.getX() - mContainerX);
         }
 
-        if (!mIsInThresholdArea) {  //不满足滑动区域，不做处理
+        if (!mEngine.isInThresholdArea()) {  //不满足滑动区域，不做处理
             return false;
         }
 
+        if (mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        } else if (action == MotionEvent.ACTION_DOWN) {
+            mVelocityTracker.clear();
+        }
+        mVelocityTracker.addMovement(ev); //包括批量的历史采样点
+
         final int actionIndex = ev.getActionIndex();
         switch (action) {
             case MotionEvent.ACTION_DOWN:
-                sendEmptyMessage(MSG_ACTION_DOWN);
+                if (mIsUnbufferedDispatch) {
+                    mWindow.getDecorView().requestUnbufferedDispatch(ev);
+                }
+                onActionDown();
                 break;
 
             case MotionEvent.ACTION_POINTER_DOWN:
-                if (mIsSliding) {  //有第二个手势事件加入，而且正在滑动事件中，则直接消费事件
+                if (mEngine.isSliding()) {  //有第二个手势事件加入，而且正在滑动事件中，则直接消费事件
                     return true;
                 }
                 break;
@@ -109,33 +331,31 @@ public class SwipeBackHelper extends Handler {
             case MotionEvent.ACTION_MOVE:
                 //一旦触发滑动机制，拦截所有其他手指的滑动事件
                 if (actionIndex != 0) {
-                    return mIsSliding;
+                    return mEngine.isSliding();
                 }
 
-                final float curPointX = ev.getRawX();
+                final float curPointX = ev.getX() - mContainerX; //对话框窗口在滑动中不会移动，窗口坐标是稳定的
 
-                boolean isSliding = mIsSliding;
+                boolean isSliding = mEngine.isSliding();
                 if (!isSliding) {
-                    if (Math.abs(curPointX - mLastPointX) < mTouchSlop) { //判断是否满足滑动
+                    if (!isBeyondTouchSlop(ev, curPointX)) { //判断是否满足滑动
                         return false;
                     } else {
-                        mIsSliding = true;
+                        mEngine.commitSlide();
+                        onSlideCommitted(ev.getEventTime());
                     }
                 }
 
-                Bundle bundle = new Bundle();
-                bundle.putFloat(CURRENT_POINT_X, curPointX);
-                Message message = obtainMessage();
-                message.what = MSG_ACTION_MOVE;
-                message.setData(bundle);
-                sendMessage(message);
+                scheduleSliding(curPointX); //只记录位置，每帧统一更新一次
 
-                if (isSliding == mIsSliding) {
+                if (isSliding) {
                     return true;
                 } else {
+                    promoteLayers();
                     MotionEvent cancelEvent = MotionEvent.obtain(ev); //首次判定为滑动需要修正事件：手动修改事件为 ACTION_CANCEL，并通知底层View
                     cancelEvent.setAction(MotionEvent.ACTION_CANCEL);
                     mWindow.superDispatchTouchEvent(cancelEvent);
+                    cancelEvent.recycle();
                     return true;
                 }
 
@@ -143,93 +363,263 @@ public class SwipeBackHelper extends Handler {
             case MotionEvent.ACTION_CANCEL:
             case MotionEvent.ACTION_POINTER_UP:
             case MotionEvent.ACTION_OUTSIDE:
-                if (mDistanceX == 0) { //没有进行滑动
-                    mIsSliding = false;
-                    sendEmptyMessage(MSG_ACTION_UP);
+                flushSliding();
+                if (mEngine.getDistanceX() == 0) { //没有进行滑动
+                    onActionUp(0);
                     return false;
                 }
 
-                if (mIsSliding && actionIndex == 0) { // 取消滑动 或 手势抬起 ，而且手势事件是第一手势，开始滑动动画
-                    mIsSliding = false;
-                    sendEmptyMessage(MSG_ACTION_UP);
+                if (mEngine.isSliding() && actionIndex == 0) { // 取消滑动 或 手势抬起 ，而且手势事件是第一手势，开始滑动动画
+                    float velocityX = 0; //被取消的手势不算快速滑动
+                    if (action != MotionEvent.ACTION_CANCEL) {
+                        mVelocityTracker.computeCurrentVelocity(1000, mMaxFlingVelocity);
+                        velocityX = mVelocityTracker.getXVelocity();
+                    }
+                    onActionUp(velocityX);
                     return true;
-                } else if (mIsSliding && actionIndex != 0) {
+                } else if (mEngine.isSliding() && actionIndex != 0) {
                     return true;
                 }
                 break;
             default:
-                mIsSliding = false;
+                mEngine.endSlide();
                 break;
         }
         return false;
     }
 
-    public void finishSwipeImmediately() {
-        if (mIsSliding) {
-            mViewManager.resetHostView();
+    /**
+     * 检查当前事件及其批量的历史采样点是否超过了滑动阈值
+     */
+    private boolean isBeyondTouchSlop(MotionEvent ev, float curPointX) {
+        if (mEngine.isBeyondTouchSlop(curPointX)) {
+            return true;
+        }
+        final int historySize = ev.getHistorySize();
+        for (int i = 0; i < historySize; i++) {
+            if (mEngine.isBeyondTouchSlop(ev.getHistoricalX(i) - mContainerX)) {
+                return true;
+            }
         }
+        return false;
+    }
 
-        if (mAnimatorSet != null) {
-            mAnimatorSet.cancel();
+    /**
+     * 记录最新的手势位置，在下一个vsync统一更新View的位置
+     */
+    private void scheduleSliding(float curPointX) {
+        mEngine.onMove(curPointX);
+        if (!mIsFrameScheduled) {
+            mIsFrameScheduled = true;
+            mChoreographer.postFrameCallback(mSlideFrameCallback);
         }
-        removeCallbacksAndMessages(null);
-        mHostActivity = null;
     }
 
-    @Override
-    public void handleMessage(Message msg) {
-        super.handleMessage(msg);
-        switch (msg.what) {
-            case MSG_ACTION_DOWN:
-                // hide input method
-                InputMethodManager inputMethod = (InputMethodManager) mHostActivity.getSystemService(Context.INPUT_METHOD_SERVICE);
-                View view = mHostActivity.getCurrentFocus();
-                if (view != null) {
-                    inputMethod.hideSoftInputFromWindow(view.getWindowToken(), 0);
-                }
+    /**
+     * 立即应用还未绘制的手势位置，手势结束时使用
+     */
+    private void flushSliding() {
+        if (mIsFrameScheduled) {
+            mChoreographer.removeFrameCallback(mSlideFrameCallback);
+            mIsFrameScheduled = false;
+            onSliding();
+        }
+    }
 
-                if (!mViewManager.addViewFromHostActivity()) return;
+    /**
+     * 确认滑动后，把参与滑动的View提升为硬件层，拖动和动画期间只改变位置，不再重新录制绘制内容
+     */
+    private void promoteLayers() {
+        if (mLayerCount > 0 || !mCurrentContentView.isHardwareAccelerated()) {
+            return;
+        }
+        promoteLayer(mViewManager.getDisplayView(), mLayerBudgetBytes);
+        promoteLayer(mViewManager.mPreviewView, mLayerBudgetBytes);
+    }
 
-                // add shadow view on the left of content view
-                mViewManager.addShadowView();
+    private void promoteLayer(View view, long budgetBytes) {
+        if (view == null || view.getLayerType() == View.LAYER_TYPE_HARDWARE) {
+            return;
+        }
+        int width = view.getWidth();
+        int height = view.getHeight();
+        if (width == 0 || height == 0) { //刚加入还没有布局的View，按将要布局的尺寸估算
+            final ViewGroup.LayoutParams lp = view.getLayoutParams();
+            width = lp != null && lp.width > 0 ? lp.width : mCurrentContentView.getWidth();
+            height = lp != null && lp.height > 0 ? lp.height : mCurrentContentView.getHeight();
+        }
+        if (width == 0 || height == 0 || width > MAX_LAYER_SIZE || height > MAX_LAYER_SIZE) {
+            return; //超出GPU纹理大小的View保持原样
+        }
+        final long bytes = (long) width * height * 4;
+        if (mLayerBytes + bytes > budgetBytes) {
+            return;
+        }
+        mLayerBytes += bytes;
+        mLayerViews[mLayerCount] = view;
+        mLayerTypes[mLayerCount] = view.getLayerType();
+        mLayerCount++;
+        view.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+    }
 
-                if (mCurrentContentView.getChildCount() >= 3) {
-                    View curView = mViewManager.getDisplayView();
-                    if (curView.getBackground() == null) {
-                        int color = getWindowBackgroundColor();
-                        curView.setBackgroundColor(color);
-                    }
-                }
-                break;
+    /**
+     * 滑动结束后恢复原来的layerType，释放硬件层
+     */
+    private void demoteLayers() {
+        for (int i = 0; i < mLayerCount; i++) {
+            mLayerViews[i].setLayerType(mLayerTypes[i], null);
+            mLayerViews[i] = null;
+        }
+        mLayerCount = 0;
+        mLayerBytes = 0;
+    }
 
-            case MSG_ACTION_MOVE:
-                final float curPointX = msg.getData().getFloat(CURRENT_POINT_X);
-                onSliding(curPointX);
-                break;
+    /**
+     * 对话框显示后调用，让预览提前做好准备
+     */
+    public void onDialogShown() {
+        SwipeDialogStack.push(mHostActivity, this);
+        mPreviewStrategy.setSource(SwipeDialogStack.getUnderlyingWindow(mHostActivity, this));
+        mPreviewStrategy.prepare();
+        mIsGeometryValid = false;
+        mCurrentContentView.removeOnLayoutChangeListener(mGeometryInvalidator);
+        mCurrentContentView.addOnLayoutChangeListener(mGeometryInvalidator);
+        // 不滑动时的格式在窗口加入之前就设置好了（SwipeBaseDialog.show()），这里只记录下来，显示时不会再改变格式
+        mIsWindowOpaque = mWindow.getAttributes().format == PixelFormat.OPAQUE;
+    }
 
-            case MSG_ACTION_UP:
-                final int width = mHostActivity.getResources().getDisplayMetrics().widthPixels;
-                if (mDistanceX == 0) {
-                    if (mCurrentContentView.getChildCount() >= 3) {
-                        mViewManager.removeShadowView();
-                        mViewManager.resetHostView();
-                    }
-                } else if (mDistanceX > width / 3) {
-                    sendEmptyMessage(MSG_SLIDE_PROCEED);
-                } else {
-                    sendEmptyMessage(MSG_SLIDE_CANCEL);
+    /**
+     * 切换窗口Surface的格式。只有窗口背景本身不透明时才能使用不透明的格式，否则透明的部分会显示成黑色
+     *
+     * @param opaque true则不透明，false则透明（滑动时可以看到下面的窗口）
+     */
+    private void setWindowOpaque(boolean opaque) {
+        if (!mIsOpaqueWhenIdle) {
+            return;
+        }
+        if (opaque) {
+            final Drawable background = mWindow.getDecorView().getBackground();
+            opaque = background != null && background.getOpacity() == PixelFormat.OPAQUE;
+        }
+        if (opaque == mIsWindowOpaque) {
+            return;
+        }
+        mIsWindowOpaque = opaque;
+        // 改变格式不是免费的：窗口要重新relayout，WindowManager重新创建Surface，新的缓冲区也要重新分配。
+        // 确认滑动的那一帧和回弹结束后的一帧各多出一次这样的开销，见SwipeWindowFormatBenchmark
+        mWindow.setFormat(opaque ? PixelFormat.OPAQUE : PixelFormat.TRANSLUCENT);
+    }
+
+    /**
+     * 按内容容器的实际大小（而不是屏幕大小）更新手势的几何信息，分屏、自由窗口下也是正确的。
+     * 只在布局变化后的第一次按下时计算，滑动过程中不查询任何资源。
+     */
+    private void ensureGeometry() {
+        if (mIsGeometryValid) {
+            return;
+        }
+        final DisplayMetrics metrics = mHostActivity.getResources().getDisplayMetrics();
+        final float density = metrics.density;
+        mLayerBudgetBytes = (long) metrics.widthPixels * metrics.heightPixels * 4 * LAYER_BUDGET_SCREENS;
+        int width = mCurrentContentView.getWidth();
+        if (width > 0) {
+            mIsGeometryValid = true;
+            mCurrentContentView.getLocationInWindow(mLocationInWindow);
+            mContainerX = mLocationInWindow[0];
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                // 内容延伸到左侧的系统栏/刘海下面时，手势区域从inset之后开始
+                final WindowInsets insets = mCurrentContentView.getRootWindowInsets();
+                if (insets != null) {
+                    mContainerX = Math.max(mContainerX, insets.getSystemWindowInsetLeft());
                 }
-                break;
+            }
+        } else { //还没有布局，暂时按窗口的大小计算，下次按下时再更新
+            width = mWindow.getDecorView().getWidth();
+            if (width <= 0) {
+                width = metrics.widthPixels;
+            }
+            mContainerX = 0;
+        }
+        mEngine.setWidth(width);
+        mEngine.setEdgeSize((int) (EDGE_SIZE * density + 0.5f)); //滑动拦截事件的区域
+        mEngine.setFlingDismissVelocity(mFlingDismissVelocityDp * density);
+    }
 
+    public void finishSwipeImmediately() {
+        if (mIsHandoffScheduled) {
+            mChoreographer.removeFrameCallback(mHandoffFrameCallback);
+            mIsHandoffScheduled = false;
+        }
+        mWindow.getDecorView().setAlpha(1); //对话框可能被复用
+        if (mIsWindowUntouchable) {
+            mWindow.clearFlags(WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE);
+            mIsWindowUntouchable = false;
+        }
+        demoteLayers();
+        endSettleAnim();
+        endOverdrawReduction();
+        mViewManager.removeShadow();
+        // 松手动画中途关闭时预览停在半路，放回Activity之前先复位
+        setTranslationX(mViewManager.mPreviewView, 0);
+        mViewManager.removePreviewView();
+        mPreviewStrategy.release();
+        // 对话框可能被复用，把滑出去的内容放回原位
+        final View displayView = mViewManager.getDisplayView();
+        if (displayView != null) {
+            displayView.setTranslationX(0);
+        }
+        if (mIsFrameScheduled) {
+            mChoreographer.removeFrameCallback(mSlideFrameCallback);
+            mIsFrameScheduled = false;
+        }
+        if (mMetricsCollector != null) {
+            mMetricsCollector.cancel();
+        }
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+        removeCallbacksAndMessages(null);
+        mCurrentContentView.removeOnLayoutChangeListener(mGeometryInvalidator);
+        SwipeDialogStack.remove(mHostActivity, this);
+        mHostActivity = null;
+    }
+
+    Window getDialogWindow() {
+        return mWindow;
+    }
+
+    /**
+     * 被新的对话框盖住或者内存不足时调用：没有在滑动时释放预览和VelocityTracker，下次按下时重新准备
+     */
+    void releaseIdleResources() {
+        if (mEngine.isSliding() || mIsSlideAnimPlaying) {
+            return;
+        }
+        mPreviewStrategy.release();
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+    }
+
+    /**
+     * @return bytes 预览缓存占用的内存
+     */
+    long getRetainedBytes() {
+        return mPreviewStrategy.getRetainedBytes();
+    }
+
+    @Override
+    public void handleMessage(Message msg) {
+        super.handleMessage(msg);
+        switch (msg.what) {
             case MSG_SLIDE_CANCEL:
                 startSlideAnim(true);
                 break;
 
             case MSG_SLIDE_CANCELED:
-                mDistanceX = 0;
-                mIsSliding = false;
-                mViewManager.removeShadowView();
-                mViewManager.resetHostView();
+                onSlideCanceled();
                 break;
 
             case MSG_SLIDE_PROCEED:
@@ -237,11 +627,7 @@ public class SwipeBackHelper extends Handler {
                 break;
 
             case MSG_SLIDE_FINISHED:
-                mViewManager.removeShadowView();
-                mViewManager.resetHostView();
-
-                if (mSlideBackManager != null)
-                    mSlideBackManager.onSwipeBackAnimFinished();
+                onSlideFinished();
                 break;
 
             default:
@@ -249,6 +635,212 @@ public class SwipeBackHelper extends Handler {
         }
     }
 
+    /**
+     * 回弹结束（或者被直接结束）：恢复宿主和当前页面
+     */
+    private void onSlideCanceled() {
+        endSettleAnim();
+        endOverdrawReduction();
+        mIsSlideAnimPlaying = false;
+        setTranslationX(mViewManager.mPreviewView, 0);
+        setTranslationX(mViewManager.getDisplayView(), 0);
+        mEngine.reset();
+        demoteLayers();
+        mViewManager.removeShadow();
+        mViewManager.removePreviewView();
+        setWindowOpaque(true);
+        reportGestureMetrics(SwipeGestureMetrics.OUTCOME_CANCELED);
+    }
+
+    /**
+     * 返回动画结束（或者被直接结束）：恢复宿主，关闭当前页面
+     */
+    private void onSlideFinished() {
+        endSettleAnim();
+        // 分两帧交还宿主：这一帧把宿主放回原位（已经按最终的大小测量、布局好），对话框只是不再绘制；
+        // 下一帧再关闭对话框，移除窗口的开销不会和宿主的恢复挤在同一帧里
+        mWindow.getDecorView().setAlpha(0);
+        // 看不见的窗口还在宿主上面，这一帧里的触摸直接交给下面的宿主窗口
+        if (!mIsWindowUntouchable) {
+            mIsWindowUntouchable = true;
+            mWindow.addFlags(WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE);
+        }
+        // 对话框窗口的背景等关闭之后（finishSwipeImmediately）再恢复，否则原地平移时关闭前会闪一帧背景
+        setTranslationX(mViewManager.mPreviewView, 0);
+        demoteLayers();
+        mViewManager.removeShadow();
+        mViewManager.removePreviewView();
+        reportGestureMetrics(SwipeGestureMetrics.OUTCOME_DISMISSED);
+
+        if (!mIsHandoffScheduled) {
+            mIsHandoffScheduled = true;
+            mChoreographer.postFrameCallback(mHandoffFrameCallback);
+        }
+    }
+
+    /**
+     * 宿主窗口的大小变化（旋转、分屏、自由窗口）后调用：正在进行的滑动按已经决定的结果直接结束，
+     * 还没有决定的按回弹处理，宿主的View一定会放回原处。几何信息在下次按下时按新的大小计算。
+     */
+    void onHostResized() {
+        mIsGeometryValid = false;
+        if (mIsFrameScheduled) {
+            mChoreographer.removeFrameCallback(mSlideFrameCallback);
+            mIsFrameScheduled = false;
+        }
+        if (mIsHandoffScheduled) { //宿主已经恢复，对话框马上关闭
+            return;
+        }
+        if (hasMessages(MSG_SLIDE_PROCEED) || hasMessages(MSG_SLIDE_FINISHED)) {
+            removeMessages(MSG_SLIDE_PROCEED);
+            removeMessages(MSG_SLIDE_FINISHED);
+            onSlideFinished();
+        } else if (mIsSlideAnimPlaying && mIsSettleDismissing) {
+            onSlideFinished();
+        } else if (mEngine.isSliding() || mIsSlideAnimPlaying) {
+            removeMessages(MSG_SLIDE_CANCEL);
+            removeMessages(MSG_SLIDE_CANCELED);
+            onSlideCanceled();
+        }
+        mEngine.abort(); //手指还没有抬起时，剩下的事件不会重新开始滑动
+    }
+
+    /**
+     * 手指按下：只做轻量的预热，真正的准备工作等确认滑动之后再做，点击不会引起重新布局
+     */
+    private void onActionDown() {
+        mQualityTier = resolveQualityTier();
+        setActivePreviewMode(mQualityTier >= QUALITY_TIER_STATIC_SNAPSHOT ? PREVIEW_MODE_SNAPSHOT : mPreviewMode);
+        mPreviewStrategy.setSource(SwipeDialogStack.getUnderlyingWindow(mHostActivity, this));
+        mPreviewStrategy.prepare();
+        if (!mIsWindowBackgroundResolved) {
+            mWindowBackgroundColor = getWindowBackgroundColor();
+            mIsWindowBackgroundResolved = true;
+        }
+    }
+
+    /**
+     * 确认滑动：隐藏输入法，把宿主的预览和阴影加到当前窗口
+     *
+     * @param eventTime 确认滑动的事件时间
+     */
+    private void onSlideCommitted(long eventTime) {
+        if (sGestureMetricsListener != null || mFixedQualityTier == QUALITY_TIER_AUTO) { //自动调整等级需要帧的统计
+            if (mMetricsCollector == null) {
+                mMetricsCollector = new GestureMetricsCollector(mChoreographer,
+                        mWindow.getWindowManager().getDefaultDisplay().getRefreshRate());
+            }
+            mMetricsCollector.onSlideCommitted(eventTime);
+        }
+
+        // hide input method
+        InputMethodManager inputMethod = (InputMethodManager) mHostActivity.getSystemService(Context.INPUT_METHOD_SERVICE);
+        View view = mHostActivity.getCurrentFocus();
+        if (view != null) {
+            inputMethod.hideSoftInputFromWindow(view.getWindowToken(), 0);
+        }
+
+        if (!mViewManager.addPreviewView()) return;
+
+        setWindowOpaque(false); //露出预览之前切换，否则第一帧会看到黑色的区域
+
+        // draw shadow on the left of content view
+        if (mQualityTier < QUALITY_TIER_NO_SHADOW) {
+            mViewManager.addShadow();
+        }
+
+        View curView = mViewManager.getDisplayView();
+        if (curView != null) {
+            if (curView.getBackground() == null) {
+                curView.setBackgroundColor(mWindowBackgroundColor);
+            }
+        }
+
+        if (mIsHideWindowBackground) {
+            // 当前页面已经有不透明的背景，露出的区域是预览（以及下面的宿主窗口），对话框窗口的背景完全是多余的。
+            // 用alpha隐藏而不是移除，移除背景会引起重新布局
+            final Drawable background = mWindow.getDecorView().getBackground();
+            if (background != null && mHiddenDecorBackground == null) {
+                mHiddenDecorBackground = background.mutate();
+                // ColorDrawable的getAlpha()包含了颜色本身的alpha，它的setAlpha()是在颜色上再乘，不修改时是255
+                mDecorBackgroundAlpha = background instanceof ColorDrawable ? 255 : mHiddenDecorBackground.getAlpha();
+                mHiddenDecorBackground.setAlpha(0);
+            }
+        }
+        if (mIsOverdrawReduction) {
+            clipPreview(0); //还没有移动，预览完全被盖住
+        }
+    }
+
+    /**
+     * 把预览裁剪到当前页面左边露出的区域，被盖住的部分不绘制。只改变RenderNode的属性，不会重新录制
+     *
+     * @param displayX px 当前页面左边缘的位置
+     */
+    private void clipPreview(float displayX) {
+        final View previewView = mViewManager.mPreviewView;
+        if (previewView == null) {
+            return;
+        }
+        final float previewX = previewView.getTranslationX();
+        mPreviewClip.set((int) -previewX, 0, (int) Math.ceil(displayX - previewX), previewView.getHeight());
+        previewView.setClipBounds(mPreviewClip);
+    }
+
+    /**
+     * 手势结束，恢复预览的裁剪和对话框窗口的背景
+     */
+    private void endOverdrawReduction() {
+        if (mViewManager.mPreviewView != null) {
+            mViewManager.mPreviewView.setClipBounds(null);
+        }
+        if (mHiddenDecorBackground != null) {
+            mHiddenDecorBackground.setAlpha(mDecorBackgroundAlpha);
+            mHiddenDecorBackground = null;
+        }
+    }
+
+    /**
+     * 手指抬起：根据抬手速度和滑动距离决定返回还是回弹
+     *
+     * @param velocityX px/s 抬手时的速度
+     */
+    private void onActionUp(float velocityX) {
+        switch (mEngine.onRelease(velocityX)) {
+            case SwipeGestureEngine.RELEASE_CANCEL:
+                sendEmptyMessage(MSG_SLIDE_CANCEL);
+                break;
+            case SwipeGestureEngine.RELEASE_DISMISS:
+                sendEmptyMessage(MSG_SLIDE_PROCEED);
+                break;
+            case SwipeGestureEngine.RELEASE_NONE:
+            default: //没有移动，或者确认滑动后又拖回了起点：不需要回弹动画，直接恢复
+                endOverdrawReduction();
+                setTranslationX(mViewManager.mPreviewView, 0);
+                setTranslationX(mViewManager.getDisplayView(), 0);
+                demoteLayers();
+                mViewManager.removeShadow();
+                mViewManager.removePreviewView();
+                setWindowOpaque(true);
+                reportGestureMetrics(SwipeGestureMetrics.OUTCOME_CANCELED);
+                break;
+        }
+    }
+
+    private void reportGestureMetrics(int outcome) {
+        if (mMetricsCollector == null || !mMetricsCollector.onGestureFinished()) {
+            return;
+        }
+        if (mFixedQualityTier == QUALITY_TIER_AUTO) { //只需要帧数，不创建SwipeGestureMetrics
+            SwipeQualityGovernor.onGestureFinished(mMetricsCollector.getFrameCount(),
+                    mMetricsCollector.getJankyFrameCount());
+        }
+        final GestureMetricsListener listener = sGestureMetricsListener;
+        if (listener != null) {
+            listener.onGestureMetrics(mMetricsCollector.buildMetrics(outcome));
+        }
+    }
+
     private int getWindowBackgroundColor() {
         TypedArray array = null;
         try {
@@ -264,27 +856,26 @@ public class SwipeBackHelper extends Handler {
     /**
      * 手动处理滑动事件
      */
-    private synchronized void onSliding(float curPointX) {
-        final int width = mHostActivity.getResources().getDisplayMetrics().widthPixels;
-        View previewActivityContentView = mViewManager.mHostContentView;
-        View shadowView = mViewManager.mShadowView;
+    private void onSliding() {
+        View previewActivityContentView = mViewManager.mPreviewView;
         View currentActivityContentView = mViewManager.getDisplayView();
 
-        if (previewActivityContentView == null || currentActivityContentView == null || shadowView == null) {
+        if (previewActivityContentView == null || currentActivityContentView == null) {
             sendEmptyMessage(MSG_SLIDE_CANCELED);
             return;
         }
 
-        final float distanceX = curPointX - mLastPointX;
-        mLastPointX = curPointX;
-        mDistanceX = mDistanceX + distanceX;
-        if (mDistanceX < 0) {
-            mDistanceX = 0;
+        if (!mEngine.applyPendingMove()) {
+            return;
         }
 
-        previewActivityContentView.setX(-width / 3 + mDistanceX / 3);
-        shadowView.setX(mDistanceX - SHADOW_WIDTH);
-        currentActivityContentView.setX(mDistanceX);
+        final float displayX = mEngine.getDisplayTranslationX();
+        previewActivityContentView.setX(getPreviewX(mEngine.getDistanceX()));
+        mViewManager.setShadowX(displayX);
+        currentActivityContentView.setX(displayX);
+        if (mIsOverdrawReduction) {
+            clipPreview(displayX);
+        }
     }
 
     /**
@@ -292,68 +883,95 @@ public class SwipeBackHelper extends Handler {
      *
      * @param slideCanceled 是不是要返回（true则不关闭当前页面）
      */
-    private void startSlideAnim(final boolean slideCanceled) {
-        final View previewView = mViewManager.mHostContentView;
-        final View shadowView = mViewManager.mShadowView;
+    private void startSlideAnim(boolean slideCanceled) {
+        final View previewView = mViewManager.mPreviewView;
         final View currentView = mViewManager.getDisplayView();
 
         if (previewView == null || currentView == null) {
             return;
         }
+        if (mMetricsCollector != null) {
+            mMetricsCollector.onSettleStarted();
+        }
+        Trace.beginSection("SwipeBack#startSettle");
 
-        int width = mHostActivity.getResources().getDisplayMetrics().widthPixels;
-        Interpolator interpolator = new DecelerateInterpolator(2f);
-
-        // preview view's animation
-        ObjectAnimator previewViewAnim = new ObjectAnimator();
-        previewViewAnim.setInterpolator(interpolator);
-        previewViewAnim.setProperty(View.TRANSLATION_X);
-        float preViewStart = mDistanceX / 3 - width / 3;
-        float preViewStop = slideCanceled ? -width / 3 : 0;
-        previewViewAnim.setFloatValues(preViewStart, preViewStop);
-        previewViewAnim.setTarget(previewView);
-
-        // shadow view's animation
-        ObjectAnimator shadowViewAnim = new ObjectAnimator();
-        shadowViewAnim.setInterpolator(interpolator);
-        shadowViewAnim.setProperty(View.TRANSLATION_X);
-        float shadowViewStart = mDistanceX - SHADOW_WIDTH;
-        float shadowViewEnd = slideCanceled ? SHADOW_WIDTH : width + SHADOW_WIDTH;
-        shadowViewAnim.setFloatValues(shadowViewStart, shadowViewEnd);
-        shadowViewAnim.setTarget(shadowView);
-
-        // current view's animation
-        ObjectAnimator currentViewAnim = new ObjectAnimator();
-        currentViewAnim.setInterpolator(interpolator);
-        currentViewAnim.setProperty(View.TRANSLATION_X);
-        float curViewStart = mDistanceX;
-        float curViewStop = slideCanceled ? 0 : width;
-        currentViewAnim.setFloatValues(curViewStart, curViewStop);
-        currentViewAnim.setTarget(currentView);
-
-        // play animation together
-        mAnimatorSet = new AnimatorSet();
-        mAnimatorSet.setDuration(slideCanceled ? 150 : 300);
-        mAnimatorSet.playTogether(previewViewAnim, shadowViewAnim, currentViewAnim);
-        mAnimatorSet.addListener(new AnimatorListenerAdapter() {
-
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                if (slideCanceled) {
-                    mIsSlideAnimPlaying = false;
-                    previewView.setX(0);
-                    shadowView.setX(-SHADOW_WIDTH);
-                    currentView.setX(0);
-                    sendEmptyMessage(MSG_SLIDE_CANCELED);
-                } else {
-                    sendEmptyMessage(MSG_SLIDE_FINISHED);
-                }
-            }
-        });
-        mAnimatorSet.start();
+        final long duration = mQualityTier >= QUALITY_TIER_SHORT_SETTLE
+                ? mEngine.getSettleDuration() / 2 : mEngine.getSettleDuration();
+        if (mIsOverdrawReduction && !slideCanceled) {
+            // 回弹时露出的区域只会变小，保持当前的裁剪，动画中不用每帧更新；返回时会完全露出
+            previewView.setClipBounds(null);
+        }
+
+        // 动画在主线程上由Choreographer驱动。View的属性只能在主线程上修改，RenderThread上的动画
+        // （RenderNodeAnimator）不是公开的API，所以主线程卡顿时松手动画也会卡顿
+        endSettleAnim();
+        mIsSettleDismissing = !slideCanceled;
+        mSettlePreviewFromX = previewView.getTranslationX();
+        mSettlePreviewToX = slideCanceled ? getPreviewX(0) : 0;
+        mSettleDisplayFromX = currentView.getTranslationX();
+        mSettleDisplayToX = slideCanceled ? 0 : mEngine.getWidth();
+        mSettleAnimator.setDuration(duration);
+        mSettleAnimator.start();
         mIsSlideAnimPlaying = true;
+        Trace.endSection();
     }
 
+    /**
+     * 松手动画中重新按下：停在动画当前的位置，从这里继续拖动。预览和阴影都还在，不需要重新准备
+     */
+    private void catchSettle(MotionEvent ev) {
+        final View previewView = mViewManager.mPreviewView;
+        final View displayView = mViewManager.getDisplayView();
+        if (previewView == null || displayView == null) {
+            return;
+        }
+        removeMessages(MSG_SLIDE_CANCELED);
+        removeMessages(MSG_SLIDE_FINISHED);
+        endSettleAnim();
+        mIsSlideAnimPlaying = false;
+        // 取消之后View停在最后一帧的位置，就是屏幕上看到的位置
+        final float displayX = displayView.getTranslationX();
+
+        mEngine.resumeSlide(ev.getX() - mContainerX, displayX);
+        previewView.setTranslationX(getPreviewX(mEngine.getDistanceX()));
+        displayView.setTranslationX(mEngine.getDisplayTranslationX());
+        mViewManager.setShadowX(mEngine.getDisplayTranslationX());
+        if (mIsOverdrawReduction) {
+            clipPreview(mEngine.getDisplayTranslationX());
+        }
+        if (mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        } else {
+            mVelocityTracker.clear();
+        }
+        mVelocityTracker.addMovement(ev);
+        if (mMetricsCollector != null) {
+            mMetricsCollector.onSettleCaught();
+        }
+    }
+
+    /**
+     * 停止松手动画，View停在当前的位置
+     */
+    private void endSettleAnim() {
+        if (mSettleAnimator.isStarted()) {
+            mSettleAnimator.cancel();
+        }
+    }
+
+    private static void setTranslationX(View view, float x) {
+        if (view != null) {
+            view.setTranslationX(x);
+        }
+    }
+
+    /**
+     * 滑动手势的性能数据监听
+     */
+    public interface GestureMetricsListener {
+
+        void onGestureMetrics(SwipeGestureMetrics metrics);
+    }
 
     public interface SlideBackManager {
 
@@ -377,82 +995,179 @@ public class SwipeBackHelper extends Handler {
 
     }
 
+    /**
+     * 可选的滑动设置。只实现 {@link SlideBackManager} 时这些设置都使用默认值
+     */
+    public interface SlideBackOptions extends SlideBackManager {
+
+        /**
+         * 是否关闭输入事件的批量分发（requestUnbufferedDispatch），降低滑动延迟，但会增加事件数量
+         *
+         * @return
+         */
+        boolean supportUnbufferedDispatch();
+
+        /**
+         * 滑动时预览宿主页面的方式
+         *
+         * @return {@link #PREVIEW_MODE_REPARENT}、{@link #PREVIEW_MODE_SNAPSHOT} 或 {@link #PREVIEW_MODE_IN_PLACE}
+         */
+        int getPreviewMode();
+
+        /**
+         * 滑动效果的等级，固定的等级不会随卡顿情况调整。自动调整的等级是进程全局的，所有选择自动的对话框共用
+         *
+         * @return {@link #QUALITY_TIER_AUTO} 或 {@link #QUALITY_TIER_FULL} 到 {@link #QUALITY_TIER_STATIC_SNAPSHOT}
+         */
+        int getQualityTier();
+
+        /**
+         * 滑动时是否减少过度绘制：预览只绘制当前页面左边露出的区域，对话框窗口的背景暂时不绘制
+         *
+         * @return
+         */
+        boolean supportOverdrawReduction();
+
+        /**
+         * 不滑动时窗口是否使用不透明的格式，只在滑动时才变为透明。窗口背景不透明时才有效。
+         * 不滑动时合成器不用混合下面的窗口，但每次确认滑动和回弹结束都要重新创建一次窗口的Surface。
+         * 显示之前需要先把窗口设置为 {@link PixelFormat#OPAQUE}，{@link SwipeBaseDialog} 已经这样做了
+         *
+         * @return
+         */
+        boolean supportOpaqueWhenIdle();
+
+        /**
+         * 松手时滑动距离超过宽度的多少比例就返回
+         *
+         * @return 默认 {@link #DEFAULT_DISMISS_THRESHOLD}
+         */
+        float getDismissThreshold();
+
+        /**
+         * 松手时向右的速度超过多少就直接返回（向左超过则回弹），不再看滑动距离
+         *
+         * @return dp/s，默认 {@link #DEFAULT_FLING_DISMISS_VELOCITY}
+         */
+        float getFlingDismissVelocity();
+
+    }
+
+    /**
+     * 松手动画的监听：每帧移动两个页面和阴影，动画播放完后通知结束。被取消时不通知
+     */
+    private class SettleListener extends AnimatorListenerAdapter implements ValueAnimator.AnimatorUpdateListener {
+        private boolean mIsCanceled;
+
+        @Override
+        public void onAnimationStart(Animator animation) {
+            mIsCanceled = false;
+        }
+
+        @Override
+        public void onAnimationUpdate(ValueAnimator animation) {
+            final float fraction = animation.getAnimatedFraction(); //已经经过插值器
+            setTranslationX(mViewManager.mPreviewView,
+                    mSettlePreviewFromX + (mSettlePreviewToX - mSettlePreviewFromX) * fraction);
+            final float displayX = mSettleDisplayFromX + (mSettleDisplayToX - mSettleDisplayFromX) * fraction;
+            setTranslationX(mViewManager.getDisplayView(), displayX);
+            mViewManager.setShadowX(displayX);
+        }
+
+        @Override
+        public void onAnimationCancel(Animator animation) {
+            mIsCanceled = true;
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            if (!mIsCanceled && mIsSlideAnimPlaying) {
+                sendEmptyMessage(mIsSettleDismissing ? MSG_SLIDE_FINISHED : MSG_SLIDE_CANCELED);
+            }
+        }
+    }
+
     private class ViewManager {
-        private View mHostContentView;
-        private View mShadowView;
-        private ViewGroup.LayoutParams mLp;
+        private View mPreviewView;
+        private boolean mIsShadowAdded;
 
         /**
-         * Remove view from previous Activity and add into current Activity
+         * Add the preview of the host below the content of current window
          *
          * @return Is view added successfully
          */
-        private boolean addViewFromHostActivity() {
+        private boolean addPreviewView() {
             if (mCurrentContentView.getChildCount() == 0) {
-                mHostContentView = null;
+                mPreviewView = null;
                 return false;
             }
-
-            ViewGroup hostActivityContainer = (ViewGroup) mHostActivity.findViewById(Window.ID_ANDROID_CONTENT);
-            if (hostActivityContainer == null || hostActivityContainer.getChildCount() == 0) {
-                mHostContentView = null;
-                return false;
+            if (mMetricsCollector != null) {
+                mMetricsCollector.beginSection();
             }
-
-            mHostContentView = hostActivityContainer.getChildAt(0);
-            hostActivityContainer.removeView(mHostContentView);
-
-            mLp = mHostContentView.getLayoutParams();
-            FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
-            mCurrentContentView.addView(mHostContentView, 0, params);
-            return true;
+            Trace.beginSection("SwipeBack#attachPreview");
+            try {
+                mPreviewView = mPreviewStrategy.attach() ? mPreviewStrategy.getPreviewView() : null;
+            } finally {
+                Trace.endSection();
+            }
+            if (mMetricsCollector != null) {
+                mMetricsCollector.endAttachPreview();
+            }
+            return mPreviewView != null;
         }
 
         /**
-         * Remove the mHostContentView at current mCurrentContentView and put it into HostActivity.
+         * Remove the preview from mCurrentContentView and restore the host.
          */
-        private void resetHostView() {
-            if (mHostContentView == null) return;
-            mCurrentContentView.removeView(mHostContentView);
-            ((ViewGroup) mHostActivity.findViewById(Window.ID_ANDROID_CONTENT)).addView(mHostContentView, mLp);
-            mHostContentView = null;
+        private void removePreviewView() {
+            if (mPreviewView == null) return;
+            if (mMetricsCollector != null) {
+                mMetricsCollector.beginSection();
+            }
+            Trace.beginSection("SwipeBack#restorePreview");
+            try {
+                mPreviewStrategy.detach();
+            } finally {
+                Trace.endSection();
+            }
+            mPreviewView = null;
+            if (mMetricsCollector != null) {
+                mMetricsCollector.endRestorePreview();
+            }
         }
 
         /**
-         * add shadow view on the left of content view
+         * draw the shadow on the left of content view through the overlay of mCurrentContentView
          */
-        private synchronized void addShadowView() {
-            if (mShadowView == null) {
-                mShadowView = new ShadowView(mHostActivity);
-                mShadowView.setX(-SHADOW_WIDTH);
-            }
-            final FrameLayout.LayoutParams layoutParams = new FrameLayout.LayoutParams(
-                    SHADOW_WIDTH, FrameLayout.LayoutParams.MATCH_PARENT);
-
-            if (this.mShadowView.getParent() == null) {
-                mCurrentContentView.addView(this.mShadowView, 0, layoutParams);
-            } else {
-                this.removeShadowView();
-                this.addShadowView();
-            }
+        private void addShadow() {
+            if (mIsShadowAdded) return;
+            mCurrentContentView.getOverlay().add(mShadowDrawable);
+            mIsShadowAdded = true;
+            setShadowX(0);
         }
 
-        private synchronized void removeShadowView() {
-            if (mShadowView == null) return;
-            mCurrentContentView.removeView(mShadowView);
-            mShadowView = null;
+        private void removeShadow() {
+            if (!mIsShadowAdded) return;
+            mCurrentContentView.getOverlay().remove(mShadowDrawable);
+            mIsShadowAdded = false;
         }
 
+        /**
+         * @param x 当前页面左边缘的位置
+         */
+        private void setShadowX(float x) {
+            if (!mIsShadowAdded) return;
+            final int right = (int) x;
+            mShadowDrawable.setBounds(right - mShadowWidth, 0, right, mCurrentContentView.getHeight());
+            mShadowDrawable.invalidateSelf();
+        }
 
         private View getDisplayView() {
             int index = 0;
-            if (mViewManager.mHostContentView != null) {
-                index = index + 1;
+            if (mViewManager.mPreviewView != null && mViewManager.mPreviewView.getParent() == mCurrentContentView) {
+                index = index + 1; //原地平移的预览不在当前窗口中
             }
 
-            if (mViewManager.mShadowView != null) {
-                index = index + 1;
-            }
             return mCurrentContentView.getChildAt(index);
         }
     }
@@ -5,12 +5,17 @@ import android.app.Dialog;
 import android.content.Context;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
+import android.graphics.PixelFormat;
+import android.graphics.drawable.ColorDrawable;
+import android.os.Build;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.StyleRes;
 import android.support.v4.content.ContextCompat;
 import android.view.Gravity;
 import android.view.MotionEvent;
+import android.view.View;
+import android.view.WindowInsets;
 import android.view.WindowManager;
 
 
@@ -18,10 +23,33 @@ import android.view.WindowManager;
  * Created by ww on 6/19.
  */
 
-public class SwipeBaseDialog extends Dialog implements SwipeBackHelper.SlideBackManager {
+public class SwipeBaseDialog extends Dialog implements SwipeBackHelper.SlideBackOptions {
 
     private static String TAG = "SwipeBaseDialog";
+    private static int sStatusBarHeight = -1;
     private SwipeBackHelper mSwipeBackHelper;
+    private SwipeDialogPool mPool; //关闭后放回的对话框池
+    private int mPoolKey;
+    private View mHostDecor; //显示时监听宿主窗口的大小
+    private int mWindowBackgroundColor;
+    private boolean mIsWindowBackgroundResolved; //对话框被复用时不需要再查询主题
+
+    private final View.OnLayoutChangeListener mHostResizeListener = new View.OnLayoutChangeListener() {
+        @Override
+        public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                   int oldLeft, int oldTop, int oldRight, int oldBottom) {
+            if (right - left == oldRight - oldLeft && bottom - top == oldBottom - oldTop) {
+                return;
+            }
+            // 旋转、分屏时不重建对话框：结束正在进行的滑动，只重新计算窗口大小，内容随窗口重新布局
+            if (mSwipeBackHelper != null) {
+                mSwipeBackHelper.onHostResized();
+            }
+            if (isShowing()) {
+                updateWindowSize(v);
+            }
+        }
+    };
 
     public SwipeBaseDialog(@NonNull Context context) {
         this(context, R.style.full_screen);
@@ -29,6 +57,9 @@ public class SwipeBaseDialog extends Dialog implements SwipeBackHelper.SlideBack
 
     public SwipeBaseDialog(@NonNull Context context, @StyleRes int themeResId) {
         super(context, R.style.full_screen);
+        if (context instanceof Activity) { //Dialog的getContext()是包装过主题的Context，不是Activity本身
+            setOwnerActivity((Activity) context);
+        }
     }
 
 
@@ -38,17 +69,60 @@ public class SwipeBaseDialog extends Dialog implements SwipeBackHelper.SlideBack
 
     }
 
+    /**
+     * 窗口的大小、位置和背景在加入WindowManager之前确定，显示时只需要一次布局和绘制
+     */
+    @Override
+    public void show() {
+        if (!isShowing()) { //窗口还没有添加，修改属性不会引起重新布局
+            final ColorDrawable background = new ColorDrawable(getWindowBackgroundColor());
+            getWindow().setBackgroundDrawable(background);
+            if (supportOpaqueWhenIdle() && background.getOpacity() == PixelFormat.OPAQUE) {
+                getWindow().setFormat(PixelFormat.OPAQUE); //不滑动时的格式，显示时不需要为了改变格式再创建一次Surface
+            }
+            updateWindowSize(getHostActivity().getWindow().getDecorView());
+        }
+        super.show();
+    }
+
     @Override
     public void onAttachedToWindow() {
         super.onAttachedToWindow();
-        getWindow().getDecorView().setBackgroundColor(getWindowBackgroundColor());
+        mHostDecor = getHostActivity().getWindow().getDecorView();
+        mHostDecor.addOnLayoutChangeListener(mHostResizeListener);
+
+        if (mSwipeBackHelper == null) {
+            mSwipeBackHelper = new SwipeBackHelper(this, getWindow());
+        }
+        mSwipeBackHelper.onDialogShown();
+    }
+
+    @Override
+    public void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        stopListeningToHost();
+    }
+
+    /**
+     * 宿主窗口比对话框活得久，监听一定要移除，否则关闭的对话框会一直被宿主引用
+     */
+    private void stopListeningToHost() {
+        if (mHostDecor != null) {
+            mHostDecor.removeOnLayoutChangeListener(mHostResizeListener);
+            mHostDecor = null;
+        }
+    }
+
+    /**
+     * 按宿主窗口的实际大小，而不是屏幕大小，分屏和自由窗口下才能盖住宿主
+     */
+    private void updateWindowSize(View hostDecor) {
         WindowManager.LayoutParams lp = getWindow().getAttributes();
-        lp.width = getContext().getResources().getDisplayMetrics().widthPixels;
-        int height = getHostActivity().getWindow().getDecorView().getMeasuredHeight();
+        lp.width = hostDecor.getWidth() > 0 ? hostDecor.getWidth()
+                : getContext().getResources().getDisplayMetrics().widthPixels;
         lp.gravity = Gravity.BOTTOM; //重要 错位问题
-        lp.height = height - getStatusBarHeight();
+        lp.height = hostDecor.getMeasuredHeight() - getHostTopInset(hostDecor);
         getWindow().setAttributes(lp);
-
     }
 
     @Override
@@ -60,10 +134,15 @@ public class SwipeBaseDialog extends Dialog implements SwipeBackHelper.SlideBack
     }
 
     private int getWindowBackgroundColor() {
+        if (mIsWindowBackgroundResolved) {
+            return mWindowBackgroundColor;
+        }
         TypedArray array = null;
         try {
             array = getContext().getTheme().obtainStyledAttributes(new int[]{android.R.attr.windowBackground});
-            return array.getColor(0, ContextCompat.getColor(getContext(), android.R.color.transparent));
+            mWindowBackgroundColor = array.getColor(0, ContextCompat.getColor(getContext(), android.R.color.transparent));
+            mIsWindowBackgroundResolved = true;
+            return mWindowBackgroundColor;
         } finally {
             if (array != null) {
                 array.recycle();
@@ -74,11 +153,20 @@ public class SwipeBaseDialog extends Dialog implements SwipeBackHelper.SlideBack
     @Override
     public void dismiss() {
         super.dismiss();
+        stopListeningToHost(); //窗口的移除是异步的，不等onDetachedFromWindow
         if (mSwipeBackHelper != null) {
             mSwipeBackHelper.finishSwipeImmediately();
             mSwipeBackHelper = null;
         }
+        if (mPool != null) {
+            mPool.recycle(mPoolKey, this);
+        }
+
+    }
 
+    void setPool(SwipeDialogPool pool, int key) {
+        mPool = pool;
+        mPoolKey = key;
     }
 
     @Override
@@ -96,14 +184,71 @@ public class SwipeBaseDialog extends Dialog implements SwipeBackHelper.SlideBack
         return true;
     }
 
+    @Override
+    public boolean supportUnbufferedDispatch() {
+        return false;
+    }
+
+    @Override
+    public int getPreviewMode() {
+        return SwipeBackHelper.PREVIEW_MODE_REPARENT;
+    }
+
+    /**
+     * 默认固定使用完整的效果。返回 {@link SwipeBackHelper#QUALITY_TIER_AUTO} 可以让效果随卡顿情况自动降级
+     */
+    @Override
+    public int getQualityTier() {
+        return SwipeBackHelper.QUALITY_TIER_FULL;
+    }
+
+    @Override
+    public boolean supportOverdrawReduction() {
+        return true;
+    }
+
+    /**
+     * 默认关闭：每次确认滑动和回弹结束都要切换格式，窗口重新relayout并创建新的Surface。
+     * 不滑动时间很长、下面的窗口混合开销明显时再打开
+     */
+    @Override
+    public boolean supportOpaqueWhenIdle() {
+        return false;
+    }
+
+    @Override
+    public float getDismissThreshold() {
+        return SwipeBackHelper.DEFAULT_DISMISS_THRESHOLD;
+    }
+
+    @Override
+    public float getFlingDismissVelocity() {
+        return SwipeBackHelper.DEFAULT_FLING_DISMISS_VELOCITY;
+    }
+
     @Override
     public boolean canBeSlideBack() {
         return true;
     }
 
+    /**
+     * 宿主窗口顶部被系统栏占用的高度。分屏下方的窗口没有状态栏，这时为0
+     */
+    private int getHostTopInset(View hostDecor) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            WindowInsets insets = hostDecor.getRootWindowInsets();
+            if (insets != null) {
+                return insets.getSystemWindowInsetTop();
+            }
+        }
+        return getStatusBarHeight();
+    }
+
     public int getStatusBarHeight() {
-        int size = Resources.getSystem().getDimensionPixelSize(
-                Resources.getSystem().getIdentifier("status_bar_height", "dimen", "android"));
-        return size;
+        if (sStatusBarHeight < 0) { //只查询一次
+            sStatusBarHeight = Resources.getSystem().getDimensionPixelSize(
+                    Resources.getSystem().getIdentifier("status_bar_height", "dimen", "android"));
+        }
+        return sStatusBarHeight;
     }
 }
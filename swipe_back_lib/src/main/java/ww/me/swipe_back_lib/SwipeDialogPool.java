@@ -0,0 +1,326 @@
+package ww.me.swipe_back_lib;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.res.XmlResourceParser;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.LayoutRes;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 一个Activity上的滑动返回对话框工厂：提前在后台线程inflate对话框的内容，
+ * 并保留少量关闭后的对话框，再次打开同一个对话框时不需要重新inflate。
+ * <p>
+ * 对话框按布局id缓存，每个布局最多一个。Activity销毁时自动清空。只在主线程调用。
+ * <p>
+ * 后台inflate和support库的AsyncLayoutInflater一样：后台线程没有Looper，构造时创建Handler的View
+ * 会抛出异常，这时改为在主线程inflate。可以在后台inflate的布局见 {@link #prefetch(int)}。
+ */
+public class SwipeDialogPool {
+
+    private static final String TAG = "SwipeDialogPool";
+
+    /**
+     * 超出数量时淘汰最久没有使用的对话框
+     */
+    public static final int EVICT_LEAST_RECENTLY_USED = 0;
+    /**
+     * 超出数量时淘汰打开次数最少的对话框，次数相同时淘汰最久没有使用的
+     */
+    public static final int EVICT_LEAST_FREQUENTLY_USED = 1;
+
+    private static final int DEFAULT_MAX_SIZE = 3;
+
+    private static ExecutorService sInflateExecutor;
+    private static final Set<SwipeDialogPool> sPools =
+            Collections.newSetFromMap(new WeakHashMap<SwipeDialogPool, Boolean>());
+
+    /**
+     * 创建对话框，不需要设置内容，内容由对话框池设置
+     */
+    public interface DialogFactory<T extends SwipeBaseDialog> {
+
+        T create(Activity activity);
+    }
+
+    /**
+     * 持有对话框池的对象，一般是Activity。DialogFragment可以通过它拿到对话框池，不需要知道具体的Activity类
+     */
+    public interface Provider {
+
+        SwipeDialogPool getDialogPool();
+    }
+
+    private final Activity mActivity;
+    private final LayoutInflater mInflater;
+    private final LayoutInflater mBackgroundInflater; //LayoutInflater不是线程安全的，后台线程用单独的一个
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final SparseArray<View> mPrefetched = new SparseArray<View>(); //后台inflate好的内容
+    private final SparseArray<Boolean> mInflating = new SparseArray<Boolean>();
+    private final SparseIntArray mUseCounts = new SparseIntArray(); //每个布局被打开的次数
+    private final LinkedHashMap<Integer, SwipeBaseDialog> mIdleDialogs =
+            new LinkedHashMap<Integer, SwipeBaseDialog>(); //按关闭的先后顺序
+    private int mMaxSize = DEFAULT_MAX_SIZE;
+    private int mEvictionPolicy = EVICT_LEAST_RECENTLY_USED;
+    private boolean mIsDestroyed;
+
+    private final Application.ActivityLifecycleCallbacks mLifecycleCallbacks = new Application.ActivityLifecycleCallbacks() {
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityStarted(Activity activity) {
+        }
+
+        @Override
+        public void onActivityResumed(Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        }
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+            if (activity == mActivity) {
+                destroy();
+            }
+        }
+    };
+
+    public SwipeDialogPool(Activity activity) {
+        mActivity = activity;
+        mInflater = LayoutInflater.from(activity);
+        mBackgroundInflater = mInflater.cloneInContext(activity);
+        activity.getApplication().registerActivityLifecycleCallbacks(mLifecycleCallbacks);
+        sPools.add(this);
+        SwipeMemoryTrimmer.register(activity);
+    }
+
+    /**
+     * @param maxSize 最多保留多少个关闭后的对话框，0表示不保留
+     */
+    public SwipeDialogPool setMaxSize(int maxSize) {
+        mMaxSize = Math.max(0, maxSize);
+        trimToSize(mMaxSize);
+        return this;
+    }
+
+    /**
+     * @param policy {@link #EVICT_LEAST_RECENTLY_USED} 或 {@link #EVICT_LEAST_FREQUENTLY_USED}
+     */
+    public SwipeDialogPool setEvictionPolicy(int policy) {
+        mEvictionPolicy = policy;
+        return this;
+    }
+
+    /**
+     * 在后台线程提前inflate对话框的内容，之后的 {@link #obtain(int, DialogFactory)} 直接使用。
+     * <p>
+     * 可以在后台inflate的布局：只包含构造时不访问主线程的View，例如系统的TextView、ImageView和各种Layout。
+     * 不可以的：构造时post()、启动动画、修改静态状态或者用主线程的Looper创建Handler的自定义View，
+     * WebView，以及&lt;fragment&gt;标签。这些布局直接在主线程inflate，不要prefetch。
+     * <p>
+     * Activity的LayoutInflater设置了Factory时（例如AppCompatActivity把TextView换成AppCompatTextView），
+     * Factory不一定是线程安全的，后台只把布局文件读出来并解析好，View仍然在obtain()时在主线程创建。
+     */
+    public void prefetch(@LayoutRes final int layoutResId) {
+        if (mIsDestroyed || mIdleDialogs.containsKey(layoutResId) || mPrefetched.get(layoutResId) != null
+                || mInflating.get(layoutResId) != null) {
+            return;
+        }
+        mInflating.put(layoutResId, Boolean.TRUE);
+        final boolean resourceOnly = mInflater.getFactory() != null || mInflater.getFactory2() != null;
+        getInflateExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                View content = null;
+                try {
+                    if (resourceOnly) {
+                        preloadLayout(layoutResId);
+                    } else {
+                        content = inflate(mBackgroundInflater, layoutResId);
+                    }
+                } catch (RuntimeException e) {
+                    // 有些View只能在主线程创建，这时留给obtain()在主线程inflate
+                    Log.w(TAG, "Failed to inflate in the background, will inflate on the main thread", e);
+                }
+                final View result = content;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mInflating.remove(layoutResId);
+                        if (result != null && !mIsDestroyed) {
+                            mPrefetched.put(layoutResId, result);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 得到一个内容为layoutResId的对话框：优先复用关闭后的对话框，其次使用提前inflate的内容，
+     * 都没有时在主线程inflate。对话框关闭后会回到池中。
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends SwipeBaseDialog> T obtain(@LayoutRes int layoutResId, DialogFactory<T> factory) {
+        mUseCounts.put(layoutResId, mUseCounts.get(layoutResId) + 1);
+        final SwipeBaseDialog idle = mIdleDialogs.remove(layoutResId);
+        if (idle != null) {
+            return (T) idle;
+        }
+
+        View content = mPrefetched.get(layoutResId);
+        mPrefetched.remove(layoutResId);
+        if (content == null) {
+            content = inflate(mInflater, layoutResId);
+        }
+        final T dialog = factory.create(mActivity);
+        final ViewGroup.LayoutParams lp = content.getLayoutParams();
+        if (lp != null) {
+            dialog.setContentView(content, lp);
+        } else {
+            dialog.setContentView(content);
+        }
+        dialog.setPool(this, layoutResId);
+        return dialog;
+    }
+
+    /**
+     * 清空所有缓存的对话框和提前inflate的内容
+     */
+    public void clear() {
+        trimToSize(0);
+        mPrefetched.clear();
+    }
+
+    /**
+     * 内存紧张时清空所有的对话框池
+     */
+    static void clearAll() {
+        for (SwipeDialogPool pool : sPools) {
+            pool.clear();
+        }
+    }
+
+    /**
+     * 对话框关闭后调用
+     */
+    void recycle(int layoutResId, SwipeBaseDialog dialog) {
+        if (mIdleDialogs.get(layoutResId) == dialog) { //重复调用dismiss()
+            return;
+        }
+        if (mIsDestroyed || mMaxSize == 0 || mIdleDialogs.containsKey(layoutResId)) {
+            dialog.setPool(null, 0);
+            return;
+        }
+        // 关闭的通知已经发出。监听一般是打开它的DialogFragment，不清除的话池会让已经销毁的Fragment一直存活，
+        // 下次打开时新的Fragment会重新设置
+        dialog.setOnDismissListener(null);
+        dialog.setOnCancelListener(null);
+        mIdleDialogs.put(layoutResId, dialog);
+        trimToSize(mMaxSize);
+    }
+
+    private void destroy() {
+        mIsDestroyed = true;
+        clear();
+        mActivity.getApplication().unregisterActivityLifecycleCallbacks(mLifecycleCallbacks);
+        sPools.remove(this);
+    }
+
+    private void trimToSize(int maxSize) {
+        while (mIdleDialogs.size() > maxSize) {
+            final Iterator<Map.Entry<Integer, SwipeBaseDialog>> iterator = mIdleDialogs.entrySet().iterator();
+            Map.Entry<Integer, SwipeBaseDialog> victim = iterator.next(); //最久没有使用的
+            if (mEvictionPolicy == EVICT_LEAST_FREQUENTLY_USED) {
+                while (iterator.hasNext()) {
+                    final Map.Entry<Integer, SwipeBaseDialog> entry = iterator.next();
+                    if (mUseCounts.get(entry.getKey()) < mUseCounts.get(victim.getKey())) {
+                        victim = entry;
+                    }
+                }
+            }
+            victim.getValue().setPool(null, 0);
+            mIdleDialogs.remove(victim.getKey());
+        }
+    }
+
+    /**
+     * 从APK中读出编译好的布局文件。Resources会缓存最近用过的几个，主线程inflate时不用再读
+     */
+    private void preloadLayout(int layoutResId) {
+        final XmlResourceParser parser = mActivity.getResources().getLayout(layoutResId);
+        parser.close();
+    }
+
+    private View inflate(LayoutInflater inflater, int layoutResId) {
+        // 用一个临时的父View生成布局参数，不会加入其中
+        return inflater.inflate(layoutResId, new FrameLayout(mActivity), false);
+    }
+
+    /**
+     * 测试用：等待已经提交的后台任务执行完。执行完后发到主线程的结果还需要主线程处理
+     */
+    void awaitBackgroundWork() throws InterruptedException, ExecutionException {
+        getInflateExecutor().submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get();
+    }
+
+    /**
+     * 后台线程故意不使用HandlerThread：没有Looper时，构造时创建Handler的View会抛出异常，
+     * 而不是悄悄地把Handler绑定到后台线程上
+     */
+    private static synchronized ExecutorService getInflateExecutor() {
+        if (sInflateExecutor == null) {
+            sInflateExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    final Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }
+                    }, "SwipeDialogInflater");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sInflateExecutor;
+    }
+}
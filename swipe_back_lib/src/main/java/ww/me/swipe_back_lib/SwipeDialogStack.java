@@ -0,0 +1,171 @@
+package ww.me.swipe_back_lib;
+
+import android.app.Activity;
+import android.util.DisplayMetrics;
+import android.view.View;
+import android.view.Window;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.WeakHashMap;
+
+/**
+ * 每个Activity上正在显示的滑动返回对话框，按显示顺序排列。
+ * 滑动时预览紧挨着的下一层（下面的对话框，或者最底层的Activity）。
+ * 被盖住的对话框不需要自己的预览；超出内存预算的更下层对话框会被隐藏，释放它们的窗口缓冲，
+ * 上面的对话框关闭后再显示出来。只在主线程使用。
+ */
+final class SwipeDialogStack {
+
+    /**
+     * 默认预算：下面的对话框窗口一共可以占用的屏幕数量
+     */
+    private static final int DEFAULT_BUDGET_SCREENS = 2;
+
+    private static final WeakHashMap<Activity, ArrayList<WeakReference<SwipeBackHelper>>> sStacks =
+            new WeakHashMap<Activity, ArrayList<WeakReference<SwipeBackHelper>>>();
+    private static long sMemoryBudget = -1; //bytes，小于0时使用默认预算
+
+    private SwipeDialogStack() {
+    }
+
+    static void setMemoryBudget(long bytes) {
+        sMemoryBudget = bytes;
+        for (ArrayList<WeakReference<SwipeBackHelper>> stack : sStacks.values()) {
+            trim(stack);
+        }
+    }
+
+    /**
+     * 对话框显示后放到栈顶
+     */
+    static void push(Activity host, SwipeBackHelper helper) {
+        ArrayList<WeakReference<SwipeBackHelper>> stack = sStacks.get(host);
+        if (stack == null) {
+            stack = new ArrayList<WeakReference<SwipeBackHelper>>(2);
+            sStacks.put(host, stack);
+        }
+        final int index = indexOf(stack, helper);
+        if (index >= 0) {
+            stack.remove(index);
+        }
+        stack.add(new WeakReference<SwipeBackHelper>(helper));
+        trim(stack);
+    }
+
+    /**
+     * 对话框关闭后移出，下面被隐藏的对话框按预算重新显示
+     */
+    static void remove(Activity host, SwipeBackHelper helper) {
+        final ArrayList<WeakReference<SwipeBackHelper>> stack = sStacks.get(host);
+        if (stack == null) {
+            return;
+        }
+        final int index = indexOf(stack, helper);
+        if (index < 0) {
+            return;
+        }
+        stack.remove(index);
+        setVisible(helper.getDialogWindow(), true);
+        if (stack.isEmpty()) {
+            sStacks.remove(host);
+        } else {
+            trim(stack);
+        }
+    }
+
+    /**
+     * @return 对话框下面紧挨着的窗口：下一层对话框，没有时是Activity的窗口
+     */
+    static Window getUnderlyingWindow(Activity host, SwipeBackHelper helper) {
+        final ArrayList<WeakReference<SwipeBackHelper>> stack = sStacks.get(host);
+        if (stack != null) {
+            for (int i = indexOf(stack, helper) - 1; i >= 0; i--) {
+                final SwipeBackHelper below = stack.get(i).get();
+                if (below != null) {
+                    return below.getDialogWindow();
+                }
+            }
+        }
+        return host.getWindow();
+    }
+
+    /**
+     * 所有没有在滑动的对话框释放预览等可以重建的资源
+     */
+    static void releaseIdleResources() {
+        for (ArrayList<WeakReference<SwipeBackHelper>> stack : sStacks.values()) {
+            for (int i = stack.size() - 1; i >= 0; i--) {
+                final SwipeBackHelper helper = stack.get(i).get();
+                if (helper != null) {
+                    helper.releaseIdleResources();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return bytes 所有对话框的预览缓存占用的内存
+     */
+    static long getRetainedBytes() {
+        long bytes = 0;
+        for (ArrayList<WeakReference<SwipeBackHelper>> stack : sStacks.values()) {
+            for (int i = stack.size() - 1; i >= 0; i--) {
+                final SwipeBackHelper helper = stack.get(i).get();
+                if (helper != null) {
+                    bytes += helper.getRetainedBytes();
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static int indexOf(ArrayList<WeakReference<SwipeBackHelper>> stack, SwipeBackHelper helper) {
+        for (int i = stack.size() - 1; i >= 0; i--) {
+            if (stack.get(i).get() == helper) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 从上往下分配预算：栈顶和紧挨着的下一层总是显示，再往下的对话框放不进预算就隐藏。
+     * 每层按窗口大小的一个ARGB_8888缓冲计算。
+     */
+    private static void trim(ArrayList<WeakReference<SwipeBackHelper>> stack) {
+        long used = 0;
+        long budget = sMemoryBudget;
+        for (int i = stack.size() - 1; i >= 0; i--) {
+            final SwipeBackHelper helper = stack.get(i).get();
+            if (helper == null) {
+                stack.remove(i);
+                continue;
+            }
+            final Window window = helper.getDialogWindow();
+            final DisplayMetrics metrics = window.getContext().getResources().getDisplayMetrics();
+            final long screenBytes = (long) metrics.widthPixels * metrics.heightPixels * 4;
+            if (budget < 0) {
+                budget = screenBytes * DEFAULT_BUDGET_SCREENS;
+            }
+            final boolean isTop = i == stack.size() - 1;
+            if (!isTop) {
+                helper.releaseIdleResources(); //被盖住的对话框不能滑动，释放它的预览
+            }
+            final View decorView = window.getDecorView();
+            final long bytes = decorView.getWidth() > 0 && decorView.getHeight() > 0
+                    ? (long) decorView.getWidth() * decorView.getHeight() * 4
+                    : screenBytes; //还没有布局，按屏幕大小估算
+            final boolean visible = isTop || i == stack.size() - 2 || used + bytes <= budget;
+            if (visible && !isTop) {
+                used += bytes;
+            }
+            setVisible(window, visible);
+        }
+    }
+
+    private static void setVisible(Window window, boolean visible) {
+        // 不可见的窗口会释放它的Surface和硬件绘制资源
+        window.getDecorView().setVisibility(visible ? View.VISIBLE : View.INVISIBLE);
+    }
+}
@@ -0,0 +1,112 @@
+package ww.me.swipe_back_lib;
+
+/**
+ * 一次滑动手势的性能数据，由 {@link SwipeBackHelper.GestureMetricsListener} 回调。
+ * 时间单位都是纳秒，没有测到的值为 -1。
+ */
+public final class SwipeGestureMetrics {
+
+    /**
+     * 回弹到当前页面
+     */
+    public static final int OUTCOME_CANCELED = 0;
+    /**
+     * 返回到前一个页面，对话框关闭
+     */
+    public static final int OUTCOME_DISMISSED = 1;
+
+    private final int mOutcome;
+    private final long mInputToFirstFrameNanos;
+    private final long mAttachPreviewNanos;
+    private final long mRestorePreviewNanos;
+    private final int mDragFrameCount;
+    private final int mDragJankyFrameCount;
+    private final int mDragDroppedFrameCount;
+    private final int mSettleFrameCount;
+    private final int mSettleJankyFrameCount;
+    private final int mSettleDroppedFrameCount;
+
+    SwipeGestureMetrics(int outcome, long inputToFirstFrameNanos, long attachPreviewNanos, long restorePreviewNanos,
+                        int dragFrameCount, int dragJankyFrameCount, int dragDroppedFrameCount,
+                        int settleFrameCount, int settleJankyFrameCount, int settleDroppedFrameCount) {
+        mOutcome = outcome;
+        mInputToFirstFrameNanos = inputToFirstFrameNanos;
+        mAttachPreviewNanos = attachPreviewNanos;
+        mRestorePreviewNanos = restorePreviewNanos;
+        mDragFrameCount = dragFrameCount;
+        mDragJankyFrameCount = dragJankyFrameCount;
+        mDragDroppedFrameCount = dragDroppedFrameCount;
+        mSettleFrameCount = settleFrameCount;
+        mSettleJankyFrameCount = settleJankyFrameCount;
+        mSettleDroppedFrameCount = settleDroppedFrameCount;
+    }
+
+    /**
+     * @return {@link #OUTCOME_CANCELED} 或 {@link #OUTCOME_DISMISSED}
+     */
+    public int getOutcome() {
+        return mOutcome;
+    }
+
+    /**
+     * @return 从确认滑动的输入事件到第一帧位置更新的时间
+     */
+    public long getInputToFirstFrameNanos() {
+        return mInputToFirstFrameNanos;
+    }
+
+    /**
+     * @return 把宿主预览加入对话框所用的时间
+     */
+    public long getAttachPreviewNanos() {
+        return mAttachPreviewNanos;
+    }
+
+    /**
+     * @return 把宿主预览移出对话框、恢复宿主所用的时间
+     */
+    public long getRestorePreviewNanos() {
+        return mRestorePreviewNanos;
+    }
+
+    public int getDragFrameCount() {
+        return mDragFrameCount;
+    }
+
+    /**
+     * @return 拖动过程中超过1.5个刷新周期的帧数
+     */
+    public int getDragJankyFrameCount() {
+        return mDragJankyFrameCount;
+    }
+
+    /**
+     * @return 拖动过程中跳过的vsync数
+     */
+    public int getDragDroppedFrameCount() {
+        return mDragDroppedFrameCount;
+    }
+
+    public int getSettleFrameCount() {
+        return mSettleFrameCount;
+    }
+
+    public int getSettleJankyFrameCount() {
+        return mSettleJankyFrameCount;
+    }
+
+    public int getSettleDroppedFrameCount() {
+        return mSettleDroppedFrameCount;
+    }
+
+    @Override
+    public String toString() {
+        return "SwipeGestureMetrics{outcome=" + (mOutcome == OUTCOME_DISMISSED ? "dismissed" : "canceled")
+                + ", inputToFirstFrameNanos=" + mInputToFirstFrameNanos
+                + ", attachPreviewNanos=" + mAttachPreviewNanos
+                + ", restorePreviewNanos=" + mRestorePreviewNanos
+                + ", drag=" + mDragFrameCount + "/" + mDragJankyFrameCount + "/" + mDragDroppedFrameCount
+                + ", settle=" + mSettleFrameCount + "/" + mSettleJankyFrameCount + "/" + mSettleDroppedFrameCount
+                + '}';
+    }
+}
@@ -0,0 +1,61 @@
+package ww.me.swipe_back_lib;
+
+import android.view.MotionEvent;
+
+import ww.me.swipe_back_core.GestureRecording;
+
+/**
+ * 把真实的触摸事件录制成 {@link GestureRecording}，用于在测试中回放。
+ * 例如在对话框的 dispatchTouchEvent 中调用 {@link #record(MotionEvent)}，
+ * 手势结束后用 {@link #build()} 得到录制并写到文件中。
+ */
+public class SwipeGestureRecorder {
+
+    private GestureRecording.Builder mBuilder;
+
+    /**
+     * 录制一个事件，ACTION_DOWN 开始一段新的录制
+     */
+    public void record(MotionEvent ev) {
+        final int action = ev.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN) {
+            mBuilder = new GestureRecording.Builder(ev.getDownTime());
+        }
+        if (mBuilder == null) {
+            return;
+        }
+
+        final int pointerCount = ev.getPointerCount();
+        final int[] pointerIds = new int[pointerCount];
+        for (int p = 0; p < pointerCount; p++) {
+            pointerIds[p] = ev.getPointerId(p);
+        }
+        mBuilder.beginEvent(pointerIds);
+
+        // 只能拿到第一个手指的raw坐标，其他手指使用相同的偏移
+        final float offsetX = ev.getRawX() - ev.getX();
+        final float offsetY = ev.getRawY() - ev.getY();
+        final float[] xy = new float[pointerCount * 2];
+        final int historySize = ev.getHistorySize();
+        for (int h = 0; h < historySize; h++) {
+            for (int p = 0; p < pointerCount; p++) {
+                xy[p * 2] = ev.getHistoricalX(p, h) + offsetX;
+                xy[p * 2 + 1] = ev.getHistoricalY(p, h) + offsetY;
+            }
+            mBuilder.addSample(ev.getHistoricalEventTime(h), xy);
+        }
+        for (int p = 0; p < pointerCount; p++) {
+            xy[p * 2] = ev.getX(p) + offsetX;
+            xy[p * 2 + 1] = ev.getY(p) + offsetY;
+        }
+        mBuilder.addSample(ev.getEventTime(), xy);
+        mBuilder.endEvent(action, ev.getActionIndex());
+    }
+
+    /**
+     * @return 从最近一次 ACTION_DOWN 开始录制的事件，没有录制时为null
+     */
+    public GestureRecording build() {
+        return mBuilder == null ? null : mBuilder.build();
+    }
+}
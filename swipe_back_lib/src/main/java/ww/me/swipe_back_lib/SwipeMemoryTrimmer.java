@@ -0,0 +1,66 @@
+package ww.me.swipe_back_lib;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * 内存不足时按等级释放滑动返回缓存的资源：
+ * <ul>
+ * <li>任何等级：回收BitmapPool中空闲的Bitmap</li>
+ * <li>RUNNING_LOW以上或界面不可见：释放没有在滑动的对话框的预览（截图）和VelocityTracker</li>
+ * <li>RUNNING_CRITICAL或进入后台：清空对话框池中关闭的对话框和提前inflate的内容</li>
+ * </ul>
+ * 释放的资源在下次使用时重新创建。对话框或对话框池创建时注册到它所在的Application，每个Application只注册一次。
+ */
+final class SwipeMemoryTrimmer implements ComponentCallbacks2 {
+
+    private static final SwipeMemoryTrimmer sInstance = new SwipeMemoryTrimmer();
+    private static final Set<Context> sRegisteredApplications =
+            Collections.newSetFromMap(new WeakHashMap<Context, Boolean>());
+
+    private SwipeMemoryTrimmer() {
+    }
+
+    static void register(Context context) {
+        final Context application = context.getApplicationContext();
+        if (sRegisteredApplications.add(application)) {
+            application.registerComponentCallbacks(sInstance);
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        trimMemory(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        trimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    static void trimMemory(int level) {
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            SwipeDialogStack.releaseIdleResources();
+        }
+        if (level == TRIM_MEMORY_RUNNING_CRITICAL || level >= TRIM_MEMORY_BACKGROUND) {
+            SwipeDialogPool.clearAll();
+        }
+        BitmapPool.clear(); //最后清空，上面释放的截图会先回到这里
+    }
+
+    /**
+     * @return bytes 现在缓存着的可以释放的内存（截图和空闲的Bitmap）
+     */
+    static long getRetainedBytes() {
+        return BitmapPool.getRetainedBytes() + SwipeDialogStack.getRetainedBytes();
+    }
+}
@@ -0,0 +1,73 @@
+package ww.me.swipe_back_lib;
+
+/**
+ * 根据设备的实际表现调整滑动效果的等级：每次滑动结束后按这次手势的卡顿比例决定是否降级，
+ * 连续几次流畅时再升级。从完整效果开始，只按实际测到的卡顿调整，不按设备参数猜测。
+ * 等级是进程全局的，所有对话框共用。只在主线程使用。
+ */
+final class SwipeQualityGovernor {
+
+    /**
+     * 卡顿帧超过这个比例算作一次卡顿的手势
+     */
+    private static final float JANKY_RATIO_STEP_DOWN = 0.2f;
+    /**
+     * 卡顿帧低于这个比例算作一次流畅的手势
+     */
+    private static final float JANKY_RATIO_STEP_UP = 0.05f;
+    private static final int JANKY_GESTURES_TO_STEP_DOWN = 2;
+    private static final int SMOOTH_GESTURES_TO_STEP_UP = 5;
+    /**
+     * 统计的帧数太少时（例如轻轻一划）不作为依据
+     */
+    private static final int MIN_FRAMES = 10;
+
+    private static int sTier = SwipeBackHelper.QUALITY_TIER_FULL;
+    private static int sJankyGestures;
+    private static int sSmoothGestures;
+
+    private SwipeQualityGovernor() {
+    }
+
+    static int getTier() {
+        return sTier;
+    }
+
+    /**
+     * 一次滑动结束后调用
+     *
+     * @param frames      滑动和松手动画中的帧数
+     * @param jankyFrames 其中卡顿的帧数
+     */
+    static void onGestureFinished(int frames, int jankyFrames) {
+        if (frames < MIN_FRAMES) {
+            return;
+        }
+        final float jankyRatio = (float) jankyFrames / frames;
+        if (jankyRatio > JANKY_RATIO_STEP_DOWN) {
+            sSmoothGestures = 0;
+            if (++sJankyGestures >= JANKY_GESTURES_TO_STEP_DOWN) {
+                sJankyGestures = 0;
+                sTier = Math.min(sTier + 1, SwipeBackHelper.QUALITY_TIER_STATIC_SNAPSHOT);
+            }
+        } else if (jankyRatio < JANKY_RATIO_STEP_UP) {
+            sJankyGestures = 0;
+            if (++sSmoothGestures >= SMOOTH_GESTURES_TO_STEP_UP) {
+                sSmoothGestures = 0;
+                sTier = Math.max(sTier - 1, SwipeBackHelper.QUALITY_TIER_FULL);
+            }
+        } else {
+            sJankyGestures = 0;
+            sSmoothGestures = 0;
+        }
+    }
+
+    /**
+     * 测试用：回到初始状态
+     */
+    static void reset() {
+        sTier = SwipeBackHelper.QUALITY_TIER_FULL;
+        sJankyGestures = 0;
+        sSmoothGestures = 0;
+    }
+}
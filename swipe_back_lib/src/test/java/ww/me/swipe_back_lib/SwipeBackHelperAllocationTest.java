@@ -0,0 +1,98 @@
+package ww.me.swipe_back_lib;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertTrue;
+import static ww.me.swipe_back_lib.SwipeTestHelper.setupHost;
+import static ww.me.swipe_back_lib.SwipeTestHelper.show;
+
+/**
+ * Guards the ACTION_MOVE path of {@link SwipeBackHelper} against per-event allocation.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SwipeBackHelperAllocationTest {
+
+    private static final int WARM_UP_EVENTS = 200;
+    private static final int MEASURED_EVENTS = 10000;
+    // 一个Bundle就远超100字节；平均每个事件不到1字节说明MOVE路径没有分配
+    private static final long MAX_ALLOCATED_BYTES = MEASURED_EVENTS;
+
+    private SwipeBaseDialog mDialog;
+
+    @Before
+    public void setUp() {
+        mDialog = show(new SwipeBaseDialog(setupHost()));
+    }
+
+    @After
+    public void tearDown() {
+        mDialog.dismiss();
+    }
+
+    @Test
+    public void moveEventsDoNotAllocate() {
+        final long downTime = SystemClock.uptimeMillis();
+        float x = 1;
+        MotionEvent down = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, x, 100, 0);
+        mDialog.dispatchTouchEvent(down);
+        down.recycle();
+
+        MotionEvent move = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_MOVE, x, 100, 0);
+        for (int i = 0; i < WARM_UP_EVENTS; i++) {
+            move.setLocation(++x, 100);
+            mDialog.dispatchTouchEvent(move);
+        }
+
+        // 暂停主线程，只测量输入路径：帧回调在测量期间最多被安排一次
+        ShadowLooper.pauseMainLooper();
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        final long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_EVENTS; i++) {
+            move.setLocation(++x, 100);
+            mDialog.dispatchTouchEvent(move);
+        }
+        final long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+        ShadowLooper.unPauseMainLooper();
+
+        // Robolectric的VelocityTracker是Java实现的shadow，每个采样都会分配；真机上是native实现，不分配。
+        // 同样的事件单独喂给一个VelocityTracker，减去它的分配
+        final long trackerAllocated = velocityTrackerAllocation(threadBean, threadId, move, x);
+        move.recycle();
+
+        assertTrue("MOVE path allocated " + allocated + " bytes over " + MEASURED_EVENTS + " events, "
+                        + trackerAllocated + " of them in the VelocityTracker shadow",
+                allocated - trackerAllocated < MAX_ALLOCATED_BYTES);
+    }
+
+    private static long velocityTrackerAllocation(com.sun.management.ThreadMXBean threadBean, long threadId,
+                                                  MotionEvent move, float x) {
+        final VelocityTracker tracker = VelocityTracker.obtain();
+        for (int i = 0; i < WARM_UP_EVENTS; i++) {
+            move.setLocation(++x, 100);
+            tracker.addMovement(move);
+        }
+        final long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_EVENTS; i++) {
+            move.setLocation(++x, 100);
+            tracker.addMovement(move);
+        }
+        final long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+        tracker.recycle();
+        return allocated;
+    }
+}
@@ -0,0 +1,113 @@
+package ww.me.swipe_back_lib;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static ww.me.swipe_back_lib.SwipeTestHelper.content;
+import static ww.me.swipe_back_lib.SwipeTestHelper.dispatch;
+import static ww.me.swipe_back_lib.SwipeTestHelper.hostContent;
+import static ww.me.swipe_back_lib.SwipeTestHelper.setupHost;
+import static ww.me.swipe_back_lib.SwipeTestHelper.show;
+
+/**
+ * Checks that a host resize (rotation, multi-window) is handled in place by the shown dialog.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SwipeConfigChangeTest {
+
+    private Activity mActivity;
+    private View mHostContent;
+    private View mDialogContent;
+    private SwipeBaseDialog mDialog;
+
+    @Before
+    public void setUp() {
+        mActivity = setupHost();
+        mHostContent = hostContent(mActivity);
+        mDialog = show(new SwipeBaseDialog(mActivity));
+        mDialogContent = content(mDialog);
+    }
+
+    @After
+    public void tearDown() {
+        mDialog.dismiss();
+    }
+
+    @Test
+    public void resizeUpdatesTheWindowWithoutRebuildingTheContent() {
+        resizeHost(720, 1280);
+        resizeHost(1280, 720);
+
+        assertTrue(mDialog.isShowing());
+        assertEquals(1280, mDialog.getWindow().getAttributes().width);
+        assertSame(mDialogContent, contentOf(mDialog).getChildAt(0));
+    }
+
+    @Test
+    public void resizeMidSwipeRestoresTheHost() {
+        final ViewGroup hostContainer = (ViewGroup) mHostContent.getParent();
+        final long downTime = SystemClock.uptimeMillis();
+        dispatch(mDialog, downTime, MotionEvent.ACTION_DOWN, 1);
+        dispatch(mDialog, downTime, MotionEvent.ACTION_MOVE, 100);
+        assertSame(contentOf(mDialog), mHostContent.getParent());
+
+        resizeHost(1280, 720);
+
+        assertSame(hostContainer, mHostContent.getParent());
+        assertEquals(0, mHostContent.getTranslationX(), 0);
+        assertEquals(0, mDialogContent.getTranslationX(), 0);
+        assertTrue(mDialog.isShowing());
+
+        // the rest of the interrupted gesture must not resume the swipe
+        dispatch(mDialog, downTime, MotionEvent.ACTION_MOVE, 200);
+        dispatch(mDialog, downTime, MotionEvent.ACTION_UP, 200);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertTrue(mDialog.isShowing());
+        assertSame(hostContainer, mHostContent.getParent());
+    }
+
+    @Test
+    public void resizeDuringTheDismissSettleStillDismisses() {
+        final ViewGroup hostContainer = (ViewGroup) mHostContent.getParent();
+        final long downTime = SystemClock.uptimeMillis();
+        dispatch(mDialog, downTime, MotionEvent.ACTION_DOWN, 1);
+        dispatch(mDialog, downTime, MotionEvent.ACTION_MOVE, 2000);
+        dispatch(mDialog, downTime, MotionEvent.ACTION_UP, 2000);
+        ShadowLooper.idleMainLooper(40); //part of the way through the settle
+
+        resizeHost(1280, 720);
+        assertSame(hostContainer, mHostContent.getParent());
+        assertEquals(0, mHostContent.getTranslationX(), 0);
+
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertFalse(mDialog.isShowing());
+    }
+
+    private void resizeHost(int width, int height) {
+        final View hostDecor = mActivity.getWindow().getDecorView();
+        hostDecor.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+        hostDecor.layout(0, 0, width, height);
+    }
+
+    private static ViewGroup contentOf(SwipeBaseDialog dialog) {
+        return (ViewGroup) dialog.findViewById(Window.ID_ANDROID_CONTENT);
+    }
+}
@@ -0,0 +1,171 @@
+package ww.me.swipe_back_lib;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.DialogInterface;
+import android.os.Looper;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.Window;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static ww.me.swipe_back_lib.SwipeTestHelper.setupHost;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SwipeDialogPoolTest {
+
+    private static final int LAYOUT_A = android.R.layout.simple_list_item_1;
+    private static final int LAYOUT_B = android.R.layout.simple_list_item_2;
+    private static final int LAYOUT_C = android.R.layout.simple_list_item_checked;
+
+    private static final SwipeDialogPool.DialogFactory<SwipeBaseDialog> FACTORY =
+            new SwipeDialogPool.DialogFactory<SwipeBaseDialog>() {
+                @Override
+                public SwipeBaseDialog create(Activity activity) {
+                    return new SwipeBaseDialog(activity);
+                }
+            };
+
+    private Activity mActivity;
+    private SwipeDialogPool mPool;
+
+    @Before
+    public void setUp() {
+        mActivity = setupHost();
+        mPool = new SwipeDialogPool(mActivity);
+    }
+
+    @Test
+    public void dismissedDialogIsReusedWithItsContent() {
+        SwipeBaseDialog dialog = showAndDismiss(LAYOUT_A);
+        View content = ((FrameLayout) dialog.findViewById(Window.ID_ANDROID_CONTENT)).getChildAt(0);
+
+        SwipeBaseDialog reused = mPool.obtain(LAYOUT_A, FACTORY);
+        assertSame(dialog, reused);
+        assertSame(content, ((FrameLayout) reused.findViewById(Window.ID_ANDROID_CONTENT)).getChildAt(0));
+        assertEquals(0, content.getTranslationX(), 0);
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() {
+        mPool.setMaxSize(2);
+        SwipeBaseDialog a = showAndDismiss(LAYOUT_A);
+        showAndDismiss(LAYOUT_B);
+        showAndDismiss(LAYOUT_C);
+
+        assertNotSame(a, mPool.obtain(LAYOUT_A, FACTORY));
+    }
+
+    @Test
+    public void leastFrequentlyUsedIsEvicted() {
+        mPool.setMaxSize(2).setEvictionPolicy(SwipeDialogPool.EVICT_LEAST_FREQUENTLY_USED);
+        SwipeBaseDialog a = showAndDismiss(LAYOUT_A);
+        assertSame(a, showAndDismiss(LAYOUT_A));
+        SwipeBaseDialog b = showAndDismiss(LAYOUT_B);
+        showAndDismiss(LAYOUT_C);
+
+        assertSame(a, mPool.obtain(LAYOUT_A, FACTORY));
+        assertNotSame(b, mPool.obtain(LAYOUT_B, FACTORY));
+    }
+
+    @Test
+    public void clearDropsIdleDialogs() {
+        SwipeBaseDialog dialog = showAndDismiss(LAYOUT_A);
+        mPool.clear();
+        assertNotSame(dialog, mPool.obtain(LAYOUT_A, FACTORY));
+    }
+
+    @Test
+    public void idleDialogDoesNotKeepItsListeners() {
+        SwipeBaseDialog dialog = mPool.obtain(LAYOUT_A, FACTORY);
+        // a DialogFragment installs itself as both listeners
+        DialogInterface.OnDismissListener dismissListener = new DialogInterface.OnDismissListener() {
+            @Override
+            public void onDismiss(DialogInterface dialog) {
+            }
+        };
+        DialogInterface.OnCancelListener cancelListener = new DialogInterface.OnCancelListener() {
+            @Override
+            public void onCancel(DialogInterface dialog) {
+            }
+        };
+        final WeakReference<Object> dismissReference = new WeakReference<Object>(dismissListener);
+        final WeakReference<Object> cancelReference = new WeakReference<Object>(cancelListener);
+        dialog.setOnDismissListener(dismissListener);
+        dialog.setOnCancelListener(cancelListener);
+        dismissListener = null;
+        cancelListener = null;
+
+        dialog.show();
+        ShadowLooper.idleMainLooper();
+        dialog.cancel();
+        ShadowLooper.idleMainLooper();
+        assertSame(dialog, mPool.obtain(LAYOUT_A, FACTORY));
+
+        for (int i = 0; i < 3 && (dismissReference.get() != null || cancelReference.get() != null); i++) {
+            System.gc();
+            System.runFinalization();
+        }
+        assertNull(dismissReference.get());
+        assertNull(cancelReference.get());
+    }
+
+    @Test
+    public void withAnInflaterFactoryViewsAreOnlyCreatedOnTheMainThread() throws Exception {
+        // what AppCompatActivity does to swap in its own widgets
+        final List<Thread> threads = new ArrayList<Thread>();
+        LayoutInflater.from(mActivity).setFactory2(new LayoutInflater.Factory2() {
+            @Override
+            public View onCreateView(View parent, String name, Context context, AttributeSet attrs) {
+                synchronized (threads) {
+                    threads.add(Thread.currentThread());
+                }
+                return null;
+            }
+
+            @Override
+            public View onCreateView(String name, Context context, AttributeSet attrs) {
+                return onCreateView(null, name, context, attrs);
+            }
+        });
+        final SwipeDialogPool pool = new SwipeDialogPool(mActivity);
+
+        pool.prefetch(LAYOUT_B);
+        pool.awaitBackgroundWork();
+        ShadowLooper.idleMainLooper();
+        pool.obtain(LAYOUT_B, FACTORY);
+
+        synchronized (threads) {
+            assertFalse(threads.isEmpty());
+            for (Thread thread : threads) {
+                assertSame(Looper.getMainLooper().getThread(), thread);
+            }
+        }
+    }
+
+    private SwipeBaseDialog showAndDismiss(int layoutResId) {
+        SwipeBaseDialog dialog = mPool.obtain(layoutResId, FACTORY);
+        dialog.show();
+        ShadowLooper.idleMainLooper();
+        dialog.dismiss();
+        return dialog;
+    }
+}
@@ -0,0 +1,76 @@
+package ww.me.swipe_back_lib;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.Window;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static ww.me.swipe_back_lib.SwipeTestHelper.content;
+import static ww.me.swipe_back_lib.SwipeTestHelper.dispatch;
+import static ww.me.swipe_back_lib.SwipeTestHelper.setupHost;
+import static ww.me.swipe_back_lib.SwipeTestHelper.show;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SwipeDialogStackTest {
+
+    private Activity mActivity;
+
+    @Before
+    public void setUp() {
+        mActivity = setupHost();
+    }
+
+    @After
+    public void tearDown() {
+        SwipeBackHelper.setPreviewStackMemoryBudget(-1);
+    }
+
+    @Test
+    public void swipePreviewsTheDialogBeneath() {
+        SwipeBaseDialog bottom = show(new SwipeBaseDialog(mActivity));
+        View bottomContent = content(bottom);
+        SwipeBaseDialog top = show(new SwipeBaseDialog(mActivity));
+
+        final long downTime = SystemClock.uptimeMillis();
+        dispatch(top, downTime, MotionEvent.ACTION_DOWN, 1);
+        dispatch(top, downTime, MotionEvent.ACTION_MOVE, 100);
+
+        assertSame(top.findViewById(Window.ID_ANDROID_CONTENT), bottomContent.getParent());
+
+        dispatch(top, downTime, MotionEvent.ACTION_CANCEL, 100);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertSame(bottom.findViewById(Window.ID_ANDROID_CONTENT), bottomContent.getParent());
+
+        top.dismiss();
+        bottom.dismiss();
+    }
+
+    @Test
+    public void levelsBeyondTheBudgetAreHiddenUntilUncovered() {
+        SwipeBackHelper.setPreviewStackMemoryBudget(0);
+        SwipeBaseDialog first = show(new SwipeBaseDialog(mActivity));
+        SwipeBaseDialog second = show(new SwipeBaseDialog(mActivity));
+        SwipeBaseDialog third = show(new SwipeBaseDialog(mActivity));
+
+        assertEquals(View.INVISIBLE, first.getWindow().getDecorView().getVisibility());
+        assertEquals(View.VISIBLE, second.getWindow().getDecorView().getVisibility());
+
+        third.dismiss();
+        assertEquals(View.VISIBLE, first.getWindow().getDecorView().getVisibility());
+
+        second.dismiss();
+        first.dismiss();
+    }
+}
@@ -0,0 +1,135 @@
+package ww.me.swipe_back_lib;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.WindowManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static ww.me.swipe_back_lib.SwipeTestHelper.dispatch;
+import static ww.me.swipe_back_lib.SwipeTestHelper.hostContent;
+import static ww.me.swipe_back_lib.SwipeTestHelper.setupHost;
+import static ww.me.swipe_back_lib.SwipeTestHelper.show;
+
+/**
+ * Checks the end of a successful swipe: the host comes back laid out at its final size in one
+ * frame, and the dialog is removed in the next. In between the hidden dialog takes no touches.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SwipeDismissHandoffTest {
+
+    private static final int FRAME_MS = 16;
+
+    private ViewGroup mHostContainer;
+    private View mHostContent;
+    private SwipeBaseDialog mDialog;
+
+    @Before
+    public void setUp() {
+        final Activity activity = setupHost();
+        mHostContent = hostContent(activity);
+        mHostContainer = (ViewGroup) mHostContent.getParent();
+        layout(activity.getWindow().getDecorView(), 480, 800);
+        mDialog = show(new SwipeBaseDialog(activity));
+    }
+
+    @Test
+    public void hostIsRestoredLaidOutBeforeTheDialogGoes() {
+        final View decor = mDialog.getWindow().getDecorView();
+        final ShadowLooper looper = ShadowLooper.getShadowMainLooper();
+        looper.pause();
+        try {
+            swipeUntilHandedBack(looper);
+
+            // first frame: the host is back and laid out, the dialog is hidden but still attached
+            assertTrue(mDialog.isShowing());
+            assertSame(mHostContainer, mHostContent.getParent());
+            assertEquals(mHostContainer.getWidth(), mHostContent.getWidth());
+            assertEquals(mHostContainer.getHeight(), mHostContent.getHeight());
+            assertFalse("the host tree should not need another layout pass", mHostContent.isLayoutRequested());
+
+            // next frame: the window goes
+            looper.idle(FRAME_MS);
+            assertFalse(mDialog.isShowing());
+            assertEquals(1, decor.getAlpha(), 0);
+        } finally {
+            looper.unPause();
+        }
+    }
+
+    @Test
+    public void tapInTheHandoffFrameIsNotSwallowed() {
+        final ShadowLooper looper = ShadowLooper.getShadowMainLooper();
+        looper.pause();
+        try {
+            swipeUntilHandedBack(looper);
+            assertTrue("new touches must go to the host window below",
+                    (flags() & WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE) != 0);
+
+            // a tap that was already on its way to the dialog window
+            final long downTime = SystemClock.uptimeMillis();
+            assertFalse(tap(downTime, MotionEvent.ACTION_DOWN));
+            assertFalse(tap(downTime, MotionEvent.ACTION_UP));
+
+            looper.idle(FRAME_MS);
+            assertFalse(mDialog.isShowing());
+            assertEquals("a reused dialog must take touches again",
+                    0, flags() & WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE);
+        } finally {
+            looper.unPause();
+        }
+    }
+
+    /**
+     * Swipes the dialog away and runs the settle task by task until the host has been handed back.
+     * The looper must be paused.
+     */
+    private void swipeUntilHandedBack(ShadowLooper looper) {
+        final View decor = mDialog.getWindow().getDecorView();
+        final long downTime = SystemClock.uptimeMillis();
+        looper.unPause();
+        dispatch(mDialog, downTime, MotionEvent.ACTION_DOWN, 1);
+        dispatch(mDialog, downTime, MotionEvent.ACTION_MOVE, 2000);
+        // the dialog container is shorter than the host's, so the host is re-measured while it is previewed
+        layout(mHostContent, 480, 700);
+
+        looper.pause();
+        dispatch(mDialog, downTime, MotionEvent.ACTION_UP, 2000);
+        while (decor.getAlpha() != 0) {
+            assertTrue("the settle never finished", looper.getScheduler().size() > 0);
+            looper.runOneTask();
+        }
+    }
+
+    private boolean tap(long downTime, int action) {
+        final MotionEvent ev = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action, 200, 100, 0);
+        try {
+            return mDialog.dispatchTouchEvent(ev);
+        } finally {
+            ev.recycle();
+        }
+    }
+
+    private int flags() {
+        return mDialog.getWindow().getAttributes().flags;
+    }
+
+    private static void layout(View view, int width, int height) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, width, height);
+    }
+}
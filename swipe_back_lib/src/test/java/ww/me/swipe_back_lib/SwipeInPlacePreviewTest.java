@@ -0,0 +1,100 @@
+package ww.me.swipe_back_lib;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static ww.me.swipe_back_lib.SwipeTestHelper.content;
+import static ww.me.swipe_back_lib.SwipeTestHelper.dispatch;
+import static ww.me.swipe_back_lib.SwipeTestHelper.setupHost;
+import static ww.me.swipe_back_lib.SwipeTestHelper.show;
+
+/**
+ * Checks that the in-place preview mode never moves the host content view out of its window.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SwipeInPlacePreviewTest {
+
+    private Activity mActivity;
+    private ViewGroup mHostContainer;
+    private CountingView mHostContent;
+    private SwipeBaseDialog mDialog;
+
+    @Before
+    public void setUp() {
+        mActivity = setupHost();
+        mHostContent = new CountingView(mActivity);
+        mActivity.setContentView(mHostContent);
+        mHostContainer = (ViewGroup) mHostContent.getParent();
+        mDialog = show(new SwipeBaseDialog(mActivity) {
+            @Override
+            public int getPreviewMode() {
+                return SwipeBackHelper.PREVIEW_MODE_IN_PLACE;
+            }
+        });
+        mHostContent.reset();
+    }
+
+    @Test
+    public void hostIsTranslatedWithoutReparenting() {
+        final View displayView = content(mDialog);
+        final long downTime = SystemClock.uptimeMillis();
+        dispatch(mDialog, downTime, MotionEvent.ACTION_DOWN, 1);
+        dispatch(mDialog, downTime, MotionEvent.ACTION_MOVE, 100);
+
+        assertSame(mHostContainer, mHostContent.getParent());
+        assertTrue("the host should be shifted for the parallax", mHostContent.getTranslationX() < 0);
+        assertTrue("the dialog content should follow the finger", displayView.getTranslationX() > 0);
+        assertEquals(0, mDialog.getWindow().getDecorView().getBackground().getAlpha());
+
+        dispatch(mDialog, downTime, MotionEvent.ACTION_CANCEL, 100);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertSame(mHostContainer, mHostContent.getParent());
+        assertEquals(0, mHostContent.getTranslationX(), 0);
+        assertEquals(0, mHostContent.mAttachCount);
+        assertEquals(0, mHostContent.mDetachCount);
+        mDialog.dismiss();
+    }
+
+    private static class CountingView extends FrameLayout {
+
+        int mAttachCount;
+        int mDetachCount;
+
+        CountingView(Activity activity) {
+            super(activity);
+        }
+
+        void reset() {
+            mAttachCount = 0;
+            mDetachCount = 0;
+        }
+
+        @Override
+        protected void onAttachedToWindow() {
+            super.onAttachedToWindow();
+            mAttachCount++;
+        }
+
+        @Override
+        protected void onDetachedFromWindow() {
+            super.onDetachedFromWindow();
+            mDetachCount++;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ww.me.swipe_back_lib;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.view.MotionEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static ww.me.swipe_back_lib.SwipeTestHelper.dispatch;
+import static ww.me.swipe_back_lib.SwipeTestHelper.setupHost;
+import static ww.me.swipe_back_lib.SwipeTestHelper.show;
+
+/**
+ * Checks that onTrimMemory leaves no reclaimable swipe resources behind.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SwipeMemoryTrimTest {
+
+    private SnapshotDialog mDialog;
+
+    @Before
+    public void setUp() {
+        // start from nothing cached, whatever ran before in this process
+        SwipeMemoryTrimmer.trimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        mDialog = show(new SnapshotDialog(setupHost()));
+    }
+
+    @After
+    public void tearDown() {
+        mDialog.dismiss();
+    }
+
+    @Test
+    public void trimReleasesSnapshotsOfIdleDialogs() {
+        swipeAndCancel();
+        assertTrue("a snapshot should be cached after a swipe", SwipeMemoryTrimmer.getRetainedBytes() > 0);
+
+        RuntimeEnvironment.application.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+        assertEquals(0, SwipeMemoryTrimmer.getRetainedBytes());
+    }
+
+    @Test
+    public void swipeStillWorksAfterTrim() {
+        RuntimeEnvironment.application.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        swipeAndCancel();
+        assertTrue(SwipeMemoryTrimmer.getRetainedBytes() > 0);
+    }
+
+    @Test
+    public void trimmerListensToEveryApplication() {
+        // Robolectric creates a new Application for every test; each one must reach the trimmer
+        swipeAndCancel();
+        RuntimeEnvironment.application.onLowMemory();
+        assertEquals(0, SwipeMemoryTrimmer.getRetainedBytes());
+    }
+
+    private void swipeAndCancel() {
+        final long downTime = SystemClock.uptimeMillis();
+        dispatch(mDialog, downTime, MotionEvent.ACTION_DOWN, 1);
+        dispatch(mDialog, downTime, MotionEvent.ACTION_MOVE, 60);
+        dispatch(mDialog, downTime, MotionEvent.ACTION_UP, 60);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    }
+
+    private static class SnapshotDialog extends SwipeBaseDialog {
+
+        SnapshotDialog(@NonNull Context context) {
+            super(context);
+        }
+
+        @Override
+        public int getPreviewMode() {
+            return SwipeBackHelper.PREVIEW_MODE_SNAPSHOT;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package ww.me.swipe_back_lib;
+
+import android.app.Activity;
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static ww.me.swipe_back_lib.SwipeTestHelper.content;
+import static ww.me.swipe_back_lib.SwipeTestHelper.dispatch;
+import static ww.me.swipe_back_lib.SwipeTestHelper.hostContent;
+import static ww.me.swipe_back_lib.SwipeTestHelper.setupHost;
+
+/**
+ * Checks the overdraw reduction state: the preview is clipped to the revealed strip and the dialog
+ * decor background is hidden while dragging, and both are restored however the gesture ends.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SwipeOverdrawTest {
+
+    private Activity mActivity;
+    private View mHostContent;
+
+    @Before
+    public void setUp() {
+        mActivity = setupHost();
+        mHostContent = hostContent(mActivity);
+    }
+
+    @Test
+    public void previewIsClippedToTheRevealedStrip() {
+        SwipeBaseDialog dialog = show(true);
+        final int backgroundAlpha = dialog.getWindow().getDecorView().getBackground().getAlpha();
+        final long downTime = SystemClock.uptimeMillis();
+        dispatch(dialog, downTime, MotionEvent.ACTION_DOWN, 1);
+        dispatch(dialog, downTime, MotionEvent.ACTION_MOVE, 100);
+
+        final Rect clip = mHostContent.getClipBounds();
+        assertNotNull(clip);
+        final View displayView = content(dialog);
+        assertEquals(displayView.getTranslationX(), clip.width(), 1);
+        assertEquals(0, dialog.getWindow().getDecorView().getBackground().getAlpha());
+
+        dispatch(dialog, downTime, MotionEvent.ACTION_CANCEL, 100);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertNull(mHostContent.getClipBounds());
+        assertEquals(backgroundAlpha, dialog.getWindow().getDecorView().getBackground().getAlpha());
+        dialog.dismiss();
+    }
+
+    @Test
+    public void stateIsRestoredWhenTheDragReturnsToTheStart() {
+        SwipeBaseDialog dialog = show(true);
+        final ViewGroup hostContainer = (ViewGroup) mActivity.findViewById(Window.ID_ANDROID_CONTENT);
+        final int backgroundAlpha = dialog.getWindow().getDecorView().getBackground().getAlpha();
+        final long downTime = SystemClock.uptimeMillis();
+        dispatch(dialog, downTime, MotionEvent.ACTION_DOWN, 1);
+        dispatch(dialog, downTime, MotionEvent.ACTION_MOVE, 100);
+        assertNotNull(mHostContent.getClipBounds());
+
+        // back to where the finger went down: released with nothing to settle
+        dispatch(dialog, downTime, MotionEvent.ACTION_MOVE, 1);
+        dispatch(dialog, downTime, MotionEvent.ACTION_UP, 1);
+
+        assertNull(mHostContent.getClipBounds());
+        assertEquals(backgroundAlpha, dialog.getWindow().getDecorView().getBackground().getAlpha());
+        assertSame(hostContainer, mHostContent.getParent());
+        assertEquals(0, mHostContent.getTranslationX(), 0);
+        assertTrue(dialog.isShowing());
+        dialog.dismiss();
+    }
+
+    @Test
+    public void stateIsRestoredAfterASwipeDismiss() {
+        SwipeBaseDialog dialog = show(true);
+        final int backgroundAlpha = dialog.getWindow().getDecorView().getBackground().getAlpha();
+        final long downTime = SystemClock.uptimeMillis();
+        dispatch(dialog, downTime, MotionEvent.ACTION_DOWN, 1);
+        dispatch(dialog, downTime, MotionEvent.ACTION_MOVE, 2000);
+        dispatch(dialog, downTime, MotionEvent.ACTION_UP, 2000);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertFalse(dialog.isShowing());
+        assertNull(mHostContent.getClipBounds());
+        // the dialog may be pooled and shown again
+        assertEquals(backgroundAlpha, dialog.getWindow().getDecorView().getBackground().getAlpha());
+    }
+
+    @Test
+    public void nothingIsClippedOrHiddenWhenDisabled() {
+        SwipeBaseDialog dialog = show(false);
+        final int backgroundAlpha = dialog.getWindow().getDecorView().getBackground().getAlpha();
+        final long downTime = SystemClock.uptimeMillis();
+        dispatch(dialog, downTime, MotionEvent.ACTION_DOWN, 1);
+        dispatch(dialog, downTime, MotionEvent.ACTION_MOVE, 100);
+
+        assertNull(mHostContent.getClipBounds());
+        assertEquals(backgroundAlpha, dialog.getWindow().getDecorView().getBackground().getAlpha());
+
+        dispatch(dialog, downTime, MotionEvent.ACTION_CANCEL, 100);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        dialog.dismiss();
+    }
+
+    private SwipeBaseDialog show(final boolean overdrawReduction) {
+        return SwipeTestHelper.show(new SwipeBaseDialog(mActivity) {
+            @Override
+            public boolean supportOverdrawReduction() {
+                return overdrawReduction;
+            }
+        });
+    }
+}
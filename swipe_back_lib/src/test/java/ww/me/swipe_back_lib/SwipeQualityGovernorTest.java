@@ -0,0 +1,114 @@
+package ww.me.swipe_back_lib;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static ww.me.swipe_back_lib.SwipeTestHelper.content;
+import static ww.me.swipe_back_lib.SwipeTestHelper.dispatch;
+import static ww.me.swipe_back_lib.SwipeTestHelper.hostContent;
+import static ww.me.swipe_back_lib.SwipeTestHelper.setupHost;
+import static ww.me.swipe_back_lib.SwipeTestHelper.show;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SwipeQualityGovernorTest {
+
+    @Before
+    public void setUp() {
+        SwipeQualityGovernor.reset();
+    }
+
+    @After
+    public void tearDown() {
+        SwipeQualityGovernor.reset();
+    }
+
+    @Test
+    public void tierStepsDownOnJankAndBackUpWithHeadroom() {
+        assertEquals("no gesture yet, so the full effect", SwipeBackHelper.QUALITY_TIER_FULL, SwipeQualityGovernor.getTier());
+
+        SwipeQualityGovernor.onGestureFinished(30, 15);
+        assertEquals("one janky gesture is not enough", SwipeBackHelper.QUALITY_TIER_FULL, SwipeQualityGovernor.getTier());
+        SwipeQualityGovernor.onGestureFinished(30, 15);
+        assertEquals(SwipeBackHelper.QUALITY_TIER_NO_SHADOW, SwipeQualityGovernor.getTier());
+
+        SwipeQualityGovernor.onGestureFinished(3, 3); //too short to judge
+        for (int i = 0; i < 5; i++) {
+            SwipeQualityGovernor.onGestureFinished(30, 0);
+        }
+        assertEquals(SwipeBackHelper.QUALITY_TIER_FULL, SwipeQualityGovernor.getTier());
+    }
+
+    @Test
+    public void tierNeverDropsBelowStaticSnapshot() {
+        for (int i = 0; i < 40; i++) {
+            SwipeQualityGovernor.onGestureFinished(30, 30);
+        }
+        assertEquals(SwipeBackHelper.QUALITY_TIER_STATIC_SNAPSHOT, SwipeQualityGovernor.getTier());
+    }
+
+    @Test
+    public void fixedTierWithoutParallaxKeepsThePreviewStill() {
+        final Activity activity = setupHost();
+        assertEquals(0, hostTranslationMidSwipe(activity, SwipeBackHelper.QUALITY_TIER_NO_PARALLAX), 0);
+    }
+
+    @Test
+    public void defaultDialogIgnoresTheGovernor() {
+        final Activity activity = setupHost(); // resets the governor, so train it afterwards
+        stepDownToStaticSnapshot();
+        assertTrue("the default tier keeps the parallax", hostTranslationMidSwipe(activity, null) != 0);
+    }
+
+    @Test
+    public void autoTierFollowsTheGovernor() {
+        final Activity activity = setupHost();
+        stepDownToStaticSnapshot();
+        assertEquals(0, hostTranslationMidSwipe(activity, SwipeBackHelper.QUALITY_TIER_AUTO), 0);
+    }
+
+    private static void stepDownToStaticSnapshot() {
+        for (int i = 0; i < 40; i++) {
+            SwipeQualityGovernor.onGestureFinished(30, 30);
+        }
+    }
+
+    /**
+     * @param activity a host from {@link SwipeTestHelper#setupHost()}
+     * @param qualityTier the tier the dialog asks for, or null for the default
+     * @return the host content's translation while the dialog is dragged by 100px
+     */
+    private static float hostTranslationMidSwipe(Activity activity, final Integer qualityTier) {
+        final View hostContent = hostContent(activity);
+        final SwipeBaseDialog dialog = show(qualityTier == null ? new SwipeBaseDialog(activity) : new SwipeBaseDialog(activity) {
+            @Override
+            public int getQualityTier() {
+                return qualityTier;
+            }
+        });
+        final View content = content(dialog);
+
+        final long downTime = SystemClock.uptimeMillis();
+        dispatch(dialog, downTime, MotionEvent.ACTION_DOWN, 1);
+        dispatch(dialog, downTime, MotionEvent.ACTION_MOVE, 100);
+        assertTrue(content.getTranslationX() > 0);
+        final float hostTranslation = hostContent.getTranslationX();
+
+        dispatch(dialog, downTime, MotionEvent.ACTION_CANCEL, 100);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        dialog.dismiss();
+        return hostTranslation;
+    }
+}
@@ -0,0 +1,306 @@
+package ww.me.swipe_back_lib;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+import android.widget.Button;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import org.robolectric.Shadows;
+import org.robolectric.shadows.ShadowMotionEvent;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import ww.me.swipe_back_core.GestureRecording;
+
+/**
+ * Replays {@link GestureRecording}s through {@link SwipeBaseDialog#dispatchTouchEvent(MotionEvent)}
+ * over a host Activity and measures what each swipe costs.
+ * <p>
+ * Set the {@code swipeback.replayReport} system property to a file path to append every
+ * {@link Report} as a CSV line, so runs before and after a change can be diffed.
+ */
+class SwipeReplayHarness {
+
+    static final String REPORT_PROPERTY = "swipeback.replayReport";
+
+    /**
+     * Builds the content of the host Activity.
+     */
+    interface HostLayout {
+
+        String getName();
+
+        View create(Context context);
+    }
+
+    /**
+     * The sample app's activity_main: a title bar and a centered button.
+     */
+    static final HostLayout SAMPLE_HOST = new HostLayout() {
+        @Override
+        public String getName() {
+            return "sample";
+        }
+
+        @Override
+        public View create(Context context) {
+            LayoutCountingFrameLayout root = new LayoutCountingFrameLayout(context);
+            TextView toolbar = new TextView(context);
+            toolbar.setText("Activity");
+            root.addView(toolbar, new FrameLayout.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+            Button button = new Button(context);
+            button.setText("open dialog");
+            root.addView(button, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+                    ViewGroup.LayoutParams.WRAP_CONTENT, android.view.Gravity.CENTER));
+            return root;
+        }
+    };
+
+    /**
+     * A deep, many-hundred-view host: {@value #DEEP_HOST_DEPTH} nested levels of
+     * {@value #DEEP_HOST_BREADTH} rows each.
+     */
+    static final HostLayout DEEP_HOST = new HostLayout() {
+        @Override
+        public String getName() {
+            return "deep";
+        }
+
+        @Override
+        public View create(Context context) {
+            LayoutCountingFrameLayout root = new LayoutCountingFrameLayout(context);
+            ViewGroup parent = root;
+            for (int depth = 0; depth < DEEP_HOST_DEPTH; depth++) {
+                LinearLayout level = new LinearLayout(context);
+                level.setOrientation(LinearLayout.VERTICAL);
+                for (int i = 0; i < DEEP_HOST_BREADTH; i++) {
+                    TextView row = new TextView(context);
+                    row.setText("row " + depth + "." + i);
+                    level.addView(row);
+                }
+                parent.addView(level);
+                parent = level;
+            }
+            return root;
+        }
+    };
+
+    static final int DEEP_HOST_DEPTH = 12;
+    static final int DEEP_HOST_BREADTH = 50;
+
+    private SwipeReplayHarness() {
+    }
+
+    /**
+     * Shows a fresh dialog over a fresh host, replays the recording with its original timing
+     * and lets the settle animation run to the end.
+     */
+    static Report replay(String recordingName, GestureRecording recording, HostLayout hostLayout) {
+        Activity host = SwipeTestHelper.setupHost();
+        LayoutCountingFrameLayout hostRoot = (LayoutCountingFrameLayout) hostLayout.create(host);
+        host.setContentView(hostRoot);
+
+        SwipeBaseDialog dialog = new SwipeBaseDialog(host);
+        LayoutCountingFrameLayout dialogRoot = new LayoutCountingFrameLayout(host);
+        dialog.setContentView(dialogRoot);
+        dialog.show();
+        ShadowLooper.idleMainLooper();
+
+        // 每次有View被加入到另一个父View中就算一次reparent
+        ReparentCounter reparentCounter = new ReparentCounter();
+        ((ViewGroup) host.findViewById(Window.ID_ANDROID_CONTENT)).setOnHierarchyChangeListener(reparentCounter);
+        ((ViewGroup) dialog.findViewById(Window.ID_ANDROID_CONTENT)).setOnHierarchyChangeListener(reparentCounter);
+        hostRoot.mLayoutCount = 0;
+        dialogRoot.mLayoutCount = 0;
+
+        final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+        final long baselineHeap = retainedHeap(memoryBean);
+        long peakHeap = baselineHeap;
+
+        final List<GestureRecording.Event> events = recording.getEvents();
+        final long[] eventNanos = new long[events.size()];
+        long lastEventTime = recording.getDownTime();
+        // 录制的时间平移到当前的时钟上，VelocityTracker和帧回调看到的是同一个时间
+        final long timeOffset = SystemClock.uptimeMillis() - recording.getDownTime();
+        for (int i = 0; i < events.size(); i++) {
+            GestureRecording.Event event = events.get(i);
+            // 按录制的时间推进主线程，让帧回调和动画在事件之间按真实节奏执行
+            ShadowLooper.idleMainLooper(event.getEventTime() - lastEventTime);
+            lastEventTime = event.getEventTime();
+
+            // Robolectric的MotionEvent不支持批量的历史采样，每个历史采样单独作为一个MOVE分发，耗时算在这个事件上
+            final int historySize = event.getHistorySize();
+            for (int h = 0; h <= historySize; h++) {
+                MotionEvent motionEvent = toMotionEvent(recording.getDownTime(), timeOffset, event, h);
+                final long start = System.nanoTime();
+                dialog.dispatchTouchEvent(motionEvent);
+                eventNanos[i] += System.nanoTime() - start;
+                motionEvent.recycle();
+            }
+
+            final int action = event.getActionMasked();
+            if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+                ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+                peakHeap = Math.max(peakHeap, retainedHeap(memoryBean));
+            }
+        }
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        peakHeap = Math.max(peakHeap, retainedHeap(memoryBean));
+
+        final boolean dismissed = !dialog.isShowing();
+        if (!dismissed) {
+            dialog.dismiss();
+        }
+        Report report = new Report(recordingName, hostLayout.getName(), eventNanos,
+                reparentCounter.mCount, hostRoot.mLayoutCount + dialogRoot.mLayoutCount,
+                peakHeap - baselineHeap, dismissed);
+        report.publish();
+        return report;
+    }
+
+    /**
+     * Robolectric's MotionEvent shadow only builds single-pointer events and keeps no history, so
+     * each sample becomes its own event and a second pointer is set through the shadow. Pointers
+     * beyond the second are dropped.
+     *
+     * @param timeOffset ms added to the recorded times
+     * @param sample     index of the historical sample, or the history size for the current one
+     */
+    private static MotionEvent toMotionEvent(long downTime, long timeOffset, GestureRecording.Event event, int sample) {
+        final boolean isHistorical = sample < event.getHistorySize();
+        final int action = isHistorical ? MotionEvent.ACTION_MOVE : event.getActionMasked()
+                | (event.getActionIndex() << MotionEvent.ACTION_POINTER_INDEX_SHIFT);
+        final MotionEvent motionEvent = MotionEvent.obtain(downTime + timeOffset, event.getSampleTime(sample) + timeOffset, action,
+                event.getX(sample, 0), event.getY(sample, 0), 0);
+        if (event.getPointerCount() > 1) {
+            final ShadowMotionEvent shadow = Shadows.shadowOf(motionEvent);
+            shadow.setPointer2(event.getX(sample, 1), event.getY(sample, 1));
+            shadow.setPointerIds(event.getPointerId(0), event.getPointerId(1));
+            shadow.setPointerIndex(isHistorical ? 0 : event.getActionIndex());
+        }
+        return motionEvent;
+    }
+
+    private static long retainedHeap(MemoryMXBean memoryBean) {
+        System.gc();
+        return memoryBean.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * What one replay cost.
+     */
+    static class Report {
+
+        final String mRecording;
+        final String mHost;
+        final int mEventCount;
+        final long mMeanEventNanos;
+        final long mP95EventNanos;
+        final long mMaxEventNanos;
+        final int mViewsReparented;
+        final int mLayoutPasses;
+        final long mPeakRetainedHeapBytes; //相对回放前，System.gc()之后在每个手势结束时采样
+        final boolean mDismissed;
+
+        Report(String recording, String host, long[] eventNanos, int viewsReparented, int layoutPasses,
+               long peakRetainedHeapBytes, boolean dismissed) {
+            mRecording = recording;
+            mHost = host;
+            mEventCount = eventNanos.length;
+            long total = 0;
+            for (long nanos : eventNanos) {
+                total += nanos;
+            }
+            final long[] sorted = eventNanos.clone();
+            Arrays.sort(sorted);
+            mMeanEventNanos = sorted.length == 0 ? 0 : total / sorted.length;
+            mP95EventNanos = sorted.length == 0 ? 0 : sorted[(int) Math.ceil(sorted.length * 0.95) - 1];
+            mMaxEventNanos = sorted.length == 0 ? 0 : sorted[sorted.length - 1];
+            mViewsReparented = viewsReparented;
+            mLayoutPasses = layoutPasses;
+            mPeakRetainedHeapBytes = Math.max(0, peakRetainedHeapBytes);
+            mDismissed = dismissed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "SwipeReplay recording=%s host=%s events=%d meanUs=%.1f p95Us=%.1f "
+                            + "maxUs=%.1f reparented=%d layouts=%d peakHeapKb=%d dismissed=%b",
+                    mRecording, mHost, mEventCount, mMeanEventNanos / 1000f, mP95EventNanos / 1000f,
+                    mMaxEventNanos / 1000f, mViewsReparented, mLayoutPasses, mPeakRetainedHeapBytes / 1024,
+                    mDismissed);
+        }
+
+        void publish() {
+            System.out.println(this);
+            final String path = System.getProperty(REPORT_PROPERTY);
+            if (path == null || path.isEmpty()) {
+                return;
+            }
+            Writer writer = null;
+            try {
+                writer = new FileWriter(path, true);
+                writer.write(String.format(Locale.US, "%s,%s,%d,%d,%d,%d,%d,%d,%d,%b%n",
+                        mRecording, mHost, mEventCount, mMeanEventNanos, mP95EventNanos, mMaxEventNanos,
+                        mViewsReparented, mLayoutPasses, mPeakRetainedHeapBytes, mDismissed));
+            } catch (IOException e) {
+                System.err.println("Can't write replay report to " + path + ": " + e);
+            } finally {
+                if (writer != null) {
+                    try {
+                        writer.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Root of the replayed layouts, counts its layout passes.
+     */
+    static class LayoutCountingFrameLayout extends FrameLayout {
+
+        int mLayoutCount;
+
+        LayoutCountingFrameLayout(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+            super.onLayout(changed, left, top, right, bottom);
+            mLayoutCount++;
+        }
+    }
+
+    private static class ReparentCounter implements ViewGroup.OnHierarchyChangeListener {
+
+        int mCount;
+
+        @Override
+        public void onChildViewAdded(View parent, View child) {
+            mCount++;
+        }
+
+        @Override
+        public void onChildViewRemoved(View parent, View child) {
+        }
+    }
+}
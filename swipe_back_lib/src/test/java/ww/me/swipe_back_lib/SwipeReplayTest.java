@@ -0,0 +1,143 @@
+package ww.me.swipe_back_lib;
+
+import android.view.MotionEvent;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+import ww.me.swipe_back_core.GestureRecording;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * End-to-end swipe replays over the sample host and a deep host. Every replay prints a
+ * {@link SwipeReplayHarness.Report}; recordings captured with {@link SwipeGestureRecorder}
+ * and dropped into {@code src/test/resources/swipe_recordings/*.swrec} are replayed as well.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SwipeReplayTest {
+
+    private static final String RECORDINGS_DIR = "swipe_recordings";
+    private static final long FRAME_MS = 16;
+    private static final float Y = 300;
+
+    private static final SwipeReplayHarness.HostLayout[] HOSTS = {
+            SwipeReplayHarness.SAMPLE_HOST, SwipeReplayHarness.DEEP_HOST
+    };
+
+    @Test
+    public void slowDragPastThresholdDismisses() {
+        GestureRecording recording = drag(0.6f, 4, 200);
+        for (SwipeReplayHarness.HostLayout host : HOSTS) {
+            SwipeReplayHarness.Report report = SwipeReplayHarness.replay("slow-dismiss", recording, host);
+            assertTrue(report.toString(), report.mDismissed);
+            assertEquals(report.toString(), 2, report.mViewsReparented);
+        }
+    }
+
+    @Test
+    public void shortDragSettlesBack() {
+        GestureRecording recording = drag(0.2f, 4, 200);
+        for (SwipeReplayHarness.HostLayout host : HOSTS) {
+            SwipeReplayHarness.Report report = SwipeReplayHarness.replay("short-cancel", recording, host);
+            assertFalse(report.toString(), report.mDismissed);
+            assertEquals(report.toString(), 2, report.mViewsReparented);
+        }
+    }
+
+    @Test
+    public void fastFlingDismisses() {
+        GestureRecording recording = drag(0.25f, 40, 0);
+        for (SwipeReplayHarness.HostLayout host : HOSTS) {
+            SwipeReplayHarness.Report report = SwipeReplayHarness.replay("fling", recording, host);
+            assertTrue(report.toString(), report.mDismissed);
+        }
+    }
+
+    @Test
+    public void tapOutsideEdgeTouchesNothing() {
+        final long downTime = 1000;
+        GestureRecording recording = new GestureRecording.Builder(downTime)
+                .addEvent(MotionEvent.ACTION_DOWN, downTime, 150, Y)
+                .addEvent(MotionEvent.ACTION_MOVE, downTime + FRAME_MS, 200, Y)
+                .addEvent(MotionEvent.ACTION_UP, downTime + 2 * FRAME_MS, 200, Y)
+                .build();
+        for (SwipeReplayHarness.HostLayout host : HOSTS) {
+            SwipeReplayHarness.Report report = SwipeReplayHarness.replay("off-edge", recording, host);
+            assertFalse(report.toString(), report.mDismissed);
+            assertEquals(report.toString(), 0, report.mViewsReparented);
+        }
+    }
+
+    @Test
+    public void recordedGestures() throws IOException, URISyntaxException {
+        URL url = getClass().getClassLoader().getResource(RECORDINGS_DIR);
+        if (url == null) {
+            return;
+        }
+        File[] files = new File(url.toURI()).listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!file.getName().endsWith(".swrec")) {
+                continue;
+            }
+            GestureRecording recording;
+            InputStream in = new FileInputStream(file);
+            try {
+                recording = GestureRecording.readFrom(in);
+            } finally {
+                in.close();
+            }
+            for (SwipeReplayHarness.HostLayout host : HOSTS) {
+                SwipeReplayHarness.replay(file.getName(), recording, host);
+            }
+        }
+    }
+
+    /**
+     * 从左边缘开始，每帧移动两个采样（一个作为历史采样批量到达），停顿后抬手
+     *
+     * @param fraction      滑动距离占屏幕宽度的比例
+     * @param stepPx        每个采样移动的距离
+     * @param pauseBeforeUp ms 抬手前的停顿，停顿够久时抬手速度为0
+     */
+    private static GestureRecording drag(float fraction, float stepPx, long pauseBeforeUp) {
+        final int width = RuntimeEnvironment.application.getResources().getDisplayMetrics().widthPixels;
+        final long downTime = 1000;
+        final float startX = 5;
+        final float endX = startX + width * fraction;
+
+        GestureRecording.Builder builder = new GestureRecording.Builder(downTime)
+                .addEvent(MotionEvent.ACTION_DOWN, downTime, startX, Y);
+        long time = downTime;
+        float x = startX;
+        while (x < endX) {
+            time += FRAME_MS;
+            builder.beginEvent(0)
+                    .addSample(time - FRAME_MS / 2, Math.min(endX, x + stepPx), Y)
+                    .addSample(time, Math.min(endX, x + 2 * stepPx), Y)
+                    .endEvent(MotionEvent.ACTION_MOVE, 0);
+            x += 2 * stepPx;
+        }
+        if (pauseBeforeUp > 0) {
+            time += pauseBeforeUp;
+            builder.addEvent(MotionEvent.ACTION_MOVE, time, endX, Y);
+        }
+        return builder.addEvent(MotionEvent.ACTION_UP, time + FRAME_MS, endX, Y).build();
+    }
+}
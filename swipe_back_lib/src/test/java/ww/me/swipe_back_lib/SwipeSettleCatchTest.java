@@ -0,0 +1,114 @@
+package ww.me.swipe_back_lib;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static ww.me.swipe_back_lib.SwipeTestHelper.content;
+import static ww.me.swipe_back_lib.SwipeTestHelper.dispatch;
+import static ww.me.swipe_back_lib.SwipeTestHelper.hostContent;
+import static ww.me.swipe_back_lib.SwipeTestHelper.setupHost;
+import static ww.me.swipe_back_lib.SwipeTestHelper.show;
+
+/**
+ * Checks the settle animation: a finger landing during it picks the page up where it is, and it
+ * leaves nothing behind on the views it moved.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SwipeSettleCatchTest {
+
+    private View mHostContent;
+    private View mDialogContent;
+    private SwipeBaseDialog mDialog;
+
+    @Before
+    public void setUp() {
+        final Activity activity = setupHost();
+        mHostContent = hostContent(activity);
+        mDialog = show(new SwipeBaseDialog(activity));
+        mDialogContent = content(mDialog);
+    }
+
+    @After
+    public void tearDown() {
+        mDialog.dismiss();
+    }
+
+    @Test
+    public void downDuringSettleResumesTheDrag() {
+        final ViewGroup dialogContainer = (ViewGroup) mDialog.findViewById(Window.ID_ANDROID_CONTENT);
+        long downTime = SystemClock.uptimeMillis();
+        dispatch(mDialog, downTime, MotionEvent.ACTION_DOWN, 1);
+        dispatch(mDialog, downTime, MotionEvent.ACTION_MOVE, 60);
+        final float releasedX = mDialogContent.getTranslationX();
+
+        // Robolectric's Choreographer moves the frame time on by itself, so a running looper would
+        // play the whole settle at once. Step it frame by frame to part of the way through instead.
+        final ShadowLooper looper = ShadowLooper.getShadowMainLooper();
+        looper.pause();
+        dispatch(mDialog, downTime, MotionEvent.ACTION_CANCEL, 60);
+        while (mDialogContent.getTranslationX() > releasedX / 2 && looper.getScheduler().size() > 0) {
+            looper.runOneTask();
+        }
+
+        final float shownX = mDialogContent.getTranslationX();
+        downTime = SystemClock.uptimeMillis();
+        dispatch(mDialog, downTime, MotionEvent.ACTION_DOWN, 400);
+        final float caughtX = mDialogContent.getTranslationX();
+        assertTrue("caught mid-flight at " + caughtX, caughtX > 0 && caughtX < releasedX);
+        assertEquals("the page must stay where it was last drawn", shownX, caughtX, 0);
+        assertSame("the preview must not be set up again", dialogContainer, mHostContent.getParent());
+
+        looper.unPause();
+        dispatch(mDialog, downTime, MotionEvent.ACTION_MOVE, 420);
+        assertEquals(caughtX + 20, mDialogContent.getTranslationX(), 1);
+
+        // the interrupted settle must not complete underneath the finger
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertTrue(mDialog.isShowing());
+        assertEquals(caughtX + 20, mDialogContent.getTranslationX(), 1);
+        assertSame(dialogContainer, mHostContent.getParent());
+
+        dispatch(mDialog, downTime, MotionEvent.ACTION_MOVE, 400);
+        dispatch(mDialog, downTime, MotionEvent.ACTION_CANCEL, 400);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertTrue(mDialog.isShowing());
+        assertEquals(0, mDialogContent.getTranslationX(), 0);
+    }
+
+    @Test
+    public void appAnimationAfterASwipeDismissLeavesTheReshownDialogAlone() {
+        final long downTime = SystemClock.uptimeMillis();
+        dispatch(mDialog, downTime, MotionEvent.ACTION_DOWN, 1);
+        dispatch(mDialog, downTime, MotionEvent.ACTION_MOVE, 60);
+        dispatch(mDialog, downTime, MotionEvent.ACTION_MOVE, 400);
+        dispatch(mDialog, downTime, MotionEvent.ACTION_UP, 400);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertFalse(mDialog.isShowing());
+
+        mDialog.show();
+        ShadowLooper.idleMainLooper();
+        mDialogContent.setTranslationX(0);
+        mDialogContent.animate().alpha(0.5f).setDuration(50).start(); //the app's own animation
+        ShadowLooper.idleMainLooper(200);
+
+        assertTrue("the finished swipe must not dismiss the dialog again", mDialog.isShowing());
+        assertEquals(1, mDialog.getWindow().getDecorView().getAlpha(), 0);
+    }
+}
@@ -0,0 +1,196 @@
+package ww.me.swipe_back_lib;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowApplication;
+import org.robolectric.shadows.ShadowContentResolver;
+import org.robolectric.shadows.ShadowDialog;
+import org.robolectric.shadows.ShadowLog;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.ShadowWindowManagerImpl;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static ww.me.swipe_back_lib.SwipeTestHelper.content;
+import static ww.me.swipe_back_lib.SwipeTestHelper.dispatch;
+import static ww.me.swipe_back_lib.SwipeTestHelper.hostContent;
+import static ww.me.swipe_back_lib.SwipeTestHelper.setupHost;
+import static ww.me.swipe_back_lib.SwipeTestHelper.show;
+
+/**
+ * Runs thousands of scripted open / swipe / dismiss cycles and checks that nothing is left
+ * behind: no reachable dialogs or dialog content, the host content view back in its window,
+ * no queued messages and bounded heap growth. Prints the average allocation per cycle type.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SwipeSoakTest {
+
+    private static final int CYCLES = 2000;
+    private static final int WARM_UP_CYCLES = 200;
+    private static final long MAX_HEAP_GROWTH_BYTES = 8 * 1024 * 1024;
+
+    private static final int CYCLE_OPEN_DISMISS = 0;
+    private static final int CYCLE_SWIPE_CANCEL = 1;
+    private static final int CYCLE_SWIPE_DISMISS = 2;
+    private static final int CYCLE_DISMISS_MID_SETTLE = 3;
+    private static final String[] CYCLE_NAMES = {
+            "open/dismiss", "partial swipe + cancel", "full swipe dismiss", "dismiss mid-settle"};
+
+    private Activity mActivity;
+    private ViewGroup mHostContainer;
+    private View mHostContent;
+    private List<View> mWindows;
+    private List<ShadowApplication.Wrapper> mReceivers;
+    private int mHostReceiverCount;
+
+    @Before
+    public void setUp() {
+        mActivity = setupHost();
+        mHostContent = hostContent(mActivity);
+        mHostContainer = (ViewGroup) mHostContent.getParent();
+        mWindows = ((ShadowWindowManagerImpl) Shadow.extract(mActivity.getWindowManager())).getViews();
+        mReceivers = ShadowApplication.getInstance().getRegisteredReceivers();
+        mHostReceiverCount = mReceivers.size();
+    }
+
+    @Test
+    public void repeatedCyclesRetainNothing() {
+        final com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        final long[] allocatedBytes = new long[CYCLE_NAMES.length];
+        final int[] measuredCycles = new int[CYCLE_NAMES.length];
+        final ArrayList<WeakReference<Object>> released = new ArrayList<WeakReference<Object>>(CYCLES * 2);
+        long baselineHeap = 0;
+
+        for (int i = 0; i < CYCLES; i++) {
+            if (i == WARM_UP_CYCLES) {
+                baselineHeap = usedHeapAfterGc();
+            }
+            final int type = i % CYCLE_NAMES.length;
+            final long before = threadBean.getThreadAllocatedBytes(threadId);
+            runCycle(type, released);
+            if (i >= WARM_UP_CYCLES) {
+                allocatedBytes[type] += threadBean.getThreadAllocatedBytes(threadId) - before;
+                measuredCycles[type]++;
+            }
+
+            assertSame("cycle " + i + " left the host content outside its window",
+                    mHostContainer, mHostContent.getParent());
+            assertEquals("cycle " + i + " left messages queued",
+                    0, ShadowLooper.getShadowMainLooper().getScheduler().size());
+        }
+
+        for (int type = 0; type < CYCLE_NAMES.length; type++) {
+            System.out.println("SwipeSoakTest: " + CYCLE_NAMES[type] + " allocates "
+                    + allocatedBytes[type] / measuredCycles[type] + " bytes per cycle");
+        }
+
+        final long heapGrowth = usedHeapAfterGc() - baselineHeap;
+        System.out.println("SwipeSoakTest: heap growth " + heapGrowth + " bytes after " + CYCLES + " cycles");
+        assertTrue("heap grew by " + heapGrowth + " bytes", heapGrowth < MAX_HEAP_GROWTH_BYTES);
+
+        int retained = 0;
+        for (WeakReference<Object> reference : released) {
+            if (reference.get() != null) {
+                retained++;
+            }
+        }
+        assertEquals("dialogs or dialog content still reachable", 0, retained);
+        assertEquals(1, mHostContainer.getChildCount());
+        assertEquals(0, mHostContent.getTranslationX(), 0);
+    }
+
+    private void runCycle(int type, ArrayList<WeakReference<Object>> released) {
+        final SwipeBaseDialog dialog = show(new SwipeBaseDialog(mActivity));
+        final View content = content(dialog);
+
+        final long downTime = SystemClock.uptimeMillis();
+        switch (type) {
+            case CYCLE_SWIPE_CANCEL:
+                dispatch(dialog, downTime, MotionEvent.ACTION_DOWN, 1);
+                dispatch(dialog, downTime, MotionEvent.ACTION_MOVE, 60);
+                dispatch(dialog, downTime, MotionEvent.ACTION_UP, 60);
+                ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+                assertTrue(dialog.isShowing());
+                dialog.dismiss();
+                break;
+            case CYCLE_SWIPE_DISMISS:
+                dispatch(dialog, downTime, MotionEvent.ACTION_DOWN, 1);
+                dispatch(dialog, downTime, MotionEvent.ACTION_MOVE, 2000);
+                dispatch(dialog, downTime, MotionEvent.ACTION_UP, 2000);
+                ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+                assertFalse(dialog.isShowing());
+                break;
+            case CYCLE_DISMISS_MID_SETTLE:
+                dispatch(dialog, downTime, MotionEvent.ACTION_DOWN, 1);
+                dispatch(dialog, downTime, MotionEvent.ACTION_MOVE, 60);
+                // Robolectric's Choreographer moves the frame time on by itself, so a running looper
+                // would play the whole settle inside the UP. Run it until the first frame has moved the page.
+                final ShadowLooper looper = ShadowLooper.getShadowMainLooper();
+                looper.pause();
+                dispatch(dialog, downTime, MotionEvent.ACTION_UP, 60);
+                final float releasedX = content.getTranslationX();
+                while (content.getTranslationX() == releasedX && looper.getScheduler().size() > 0) {
+                    looper.runOneTask();
+                }
+                final float settlingX = content.getTranslationX();
+                assertTrue("not mid-settle at " + settlingX, settlingX > 0 && settlingX < releasedX);
+                dialog.dismiss();
+                looper.unPause();
+                break;
+            case CYCLE_OPEN_DISMISS:
+            default:
+                dialog.dismiss();
+                break;
+        }
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        forgetRobolectricBookkeeping(dialog);
+
+        released.add(new WeakReference<Object>(dialog));
+        released.add(new WeakReference<Object>(content));
+    }
+
+    /**
+     * Robolectric holds on to things the platform lets go of, which would swamp the heap figures.
+     * The WindowManagerImpl shadow only forgets a window in removeView(), but Dialog.dismiss() uses
+     * removeViewImmediate(). The AccessibilityManager shadow builds a new service on every
+     * getInstance(), and the receivers and content observers each one registers are kept. Every
+     * dialog ever shown and every log line are kept too. Custom shadows would give this class its
+     * own sandbox, which Robolectric 3.3 cannot run next to the others, so they are dropped here.
+     */
+    private void forgetRobolectricBookkeeping(SwipeBaseDialog dialog) {
+        mWindows.remove(dialog.getWindow().getDecorView());
+        mReceivers.subList(mHostReceiverCount, mReceivers.size()).clear();
+        ((ShadowContentResolver) Shadow.extract(mActivity.getContentResolver())).clearContentObservers();
+        ShadowDialog.reset();
+        ShadowLog.reset();
+    }
+
+    private static long usedHeapAfterGc() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            System.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
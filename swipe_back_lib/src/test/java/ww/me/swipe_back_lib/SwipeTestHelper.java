@@ -0,0 +1,82 @@
+package ww.me.swipe_back_lib;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+import android.widget.FrameLayout;
+
+import org.robolectric.Robolectric;
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * Shared Robolectric fixture for the swipe tests: a host Activity with a single FrameLayout as
+ * content, dialogs shown on top of it, and touch events sent straight to a dialog.
+ */
+final class SwipeTestHelper {
+
+    private static final int VELOCITY_TRACKER_POOL_SIZE = 2; //VelocityTracker.sPool
+
+    private SwipeTestHelper() {
+    }
+
+    /**
+     * Also resets the process-wide quality governor and the VelocityTracker pool, so no test sees
+     * a tier or touch samples left by another.
+     *
+     * @return a resumed Activity whose content is a single FrameLayout
+     */
+    static Activity setupHost() {
+        SwipeQualityGovernor.reset();
+        drainVelocityTrackerPool();
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        activity.setContentView(new FrameLayout(activity));
+        return activity;
+    }
+
+    /**
+     * VelocityTracker.obtain() hands out trackers recycled by earlier tests. Robolectric's shadow
+     * keeps the samples of a cleared tracker, and the clock restarts for every test, so those
+     * samples look recent and skew the release velocity. Taking every pooled tracker out of the
+     * pool gives the next dialog a new one.
+     */
+    private static void drainVelocityTrackerPool() {
+        for (int i = 0; i < VELOCITY_TRACKER_POOL_SIZE; i++) {
+            VelocityTracker.obtain();
+        }
+    }
+
+    /**
+     * @return the content view set by {@link #setupHost()}
+     */
+    static View hostContent(Activity activity) {
+        return ((ViewGroup) activity.findViewById(Window.ID_ANDROID_CONTENT)).getChildAt(0);
+    }
+
+    /**
+     * Gives the dialog a FrameLayout as content, shows it and lets the show complete.
+     */
+    static <T extends SwipeBaseDialog> T show(T dialog) {
+        dialog.setContentView(new FrameLayout(dialog.getContext()));
+        dialog.show();
+        ShadowLooper.idleMainLooper();
+        return dialog;
+    }
+
+    /**
+     * @return the view passed to the dialog's setContentView(); while swiping the preview sits below it
+     */
+    static View content(SwipeBaseDialog dialog) {
+        final ViewGroup container = (ViewGroup) dialog.findViewById(Window.ID_ANDROID_CONTENT);
+        return container.getChildAt(container.getChildCount() - 1);
+    }
+
+    static void dispatch(SwipeBaseDialog dialog, long downTime, int action, float x) {
+        final MotionEvent ev = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action, x, 100, 0);
+        dialog.dispatchTouchEvent(ev);
+        ev.recycle();
+    }
+}
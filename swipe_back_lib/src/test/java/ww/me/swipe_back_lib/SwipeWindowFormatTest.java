@@ -0,0 +1,116 @@
+package ww.me.swipe_back_lib;
+
+import android.app.Activity;
+import android.graphics.PixelFormat;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static ww.me.swipe_back_lib.SwipeTestHelper.dispatch;
+import static ww.me.swipe_back_lib.SwipeTestHelper.setupHost;
+import static ww.me.swipe_back_lib.SwipeTestHelper.show;
+
+/**
+ * Checks that a dialog opting in to supportOpaqueWhenIdle() only asks the compositor to blend what
+ * is beneath it while a swipe is in progress, and that other dialogs never change their format.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SwipeWindowFormatTest {
+
+    private SwipeBaseDialog mDialog;
+
+    @Before
+    public void setUp() {
+        mDialog = show(new OpaqueWhenIdleDialog(setupHost()));
+    }
+
+    @After
+    public void tearDown() {
+        mDialog.dismiss();
+    }
+
+    @Test
+    public void windowIsOpaqueUntilTheSlideIsCommitted() {
+        assertEquals(PixelFormat.OPAQUE, format());
+
+        final long downTime = SystemClock.uptimeMillis();
+        dispatch(mDialog, downTime, MotionEvent.ACTION_DOWN, 1);
+        assertEquals("a tap must not change the surface format", PixelFormat.OPAQUE, format());
+
+        dispatch(mDialog, downTime, MotionEvent.ACTION_MOVE, 100);
+        assertEquals(PixelFormat.TRANSLUCENT, format());
+
+        dispatch(mDialog, downTime, MotionEvent.ACTION_CANCEL, 100);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(PixelFormat.OPAQUE, format());
+    }
+
+    @Test
+    public void windowIsAddedOpaque() {
+        mDialog.dismiss();
+        final int[] formatWhenAttached = new int[1];
+        mDialog = show(new OpaqueWhenIdleDialog(setupHost()) {
+            @Override
+            public void onAttachedToWindow() {
+                formatWhenAttached[0] = getWindow().getAttributes().format;
+                super.onAttachedToWindow();
+            }
+        });
+
+        assertEquals("the idle format must be set before the window is added", PixelFormat.OPAQUE, formatWhenAttached[0]);
+        assertEquals(PixelFormat.OPAQUE, format());
+    }
+
+    @Test
+    public void windowIsOpaqueAgainWhenTheDragReturnsToTheStart() {
+        final long downTime = SystemClock.uptimeMillis();
+        dispatch(mDialog, downTime, MotionEvent.ACTION_DOWN, 1);
+        dispatch(mDialog, downTime, MotionEvent.ACTION_MOVE, 100);
+        assertEquals(PixelFormat.TRANSLUCENT, format());
+
+        dispatch(mDialog, downTime, MotionEvent.ACTION_MOVE, 1);
+        dispatch(mDialog, downTime, MotionEvent.ACTION_UP, 1);
+        assertEquals(PixelFormat.OPAQUE, format());
+    }
+
+    @Test
+    public void defaultDialogKeepsItsFormatWhileSwiping() {
+        mDialog.dismiss();
+        mDialog = show(new SwipeBaseDialog(setupHost()));
+        final int idleFormat = format();
+
+        final long downTime = SystemClock.uptimeMillis();
+        dispatch(mDialog, downTime, MotionEvent.ACTION_DOWN, 1);
+        dispatch(mDialog, downTime, MotionEvent.ACTION_MOVE, 100);
+        assertEquals("a committed drag must not re-create the surface", idleFormat, format());
+
+        dispatch(mDialog, downTime, MotionEvent.ACTION_CANCEL, 100);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(idleFormat, format());
+    }
+
+    private int format() {
+        return mDialog.getWindow().getAttributes().format;
+    }
+
+    private static class OpaqueWhenIdleDialog extends SwipeBaseDialog {
+
+        OpaqueWhenIdleDialog(Activity host) {
+            super(host);
+        }
+
+        @Override
+        public boolean supportOpaqueWhenIdle() {
+            return true;
+        }
+    }
+}